@@ -0,0 +1,115 @@
+package com.travelbuddy.config;
+
+import com.travelbuddy.repository.ActivityRepository;
+import com.travelbuddy.repository.CityRepository;
+import com.travelbuddy.repository.JaxbSupport;
+import com.travelbuddy.repository.TripRepository;
+import com.travelbuddy.repository.UserRepository;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads all repositories when the application starts instead of on the first
+ * request that happens to need each of them. The shared JAXB context and the
+ * four repositories are loaded in parallel on a small bounded pool
+ * (travelbuddy.startup.threads), and pending writes are flushed on shutdown.
+ */
+@WebListener
+public class RepositoryBootstrap implements ServletContextListener {
+
+    private static volatile Map<String, Object> startupMetrics = Collections.singletonMap("ready", false);
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        long start = System.nanoTime();
+        int threads = AppConfig.getInt("travelbuddy.startup.threads",
+                Math.min(4, Runtime.getRuntime().availableProcessors()));
+        long timeoutSeconds = AppConfig.getLong("travelbuddy.startup.timeoutSeconds", 120);
+
+        Map<String, Runnable> loaders = new LinkedHashMap<>();
+        loaders.put("jaxbContext", JaxbSupport::getContext);
+        loaders.put("activities", ActivityRepository::getInstance);
+        loaders.put("trips", TripRepository::getInstance);
+        loaders.put("users", UserRepository::getInstance);
+        loaders.put("cities", CityRepository::getInstance);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "repository-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Future<Double>> tasks = new LinkedHashMap<>();
+        loaders.forEach((name, loader) -> tasks.put(name, executor.submit(() -> {
+            long taskStart = System.nanoTime();
+            loader.run();
+            return (System.nanoTime() - taskStart) / 1_000_000.0;
+        })));
+        executor.shutdown();
+
+        boolean ready = true;
+        Map<String, Object> loadMillis = new LinkedHashMap<>();
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        for (Map.Entry<String, Future<Double>> task : tasks.entrySet()) {
+            try {
+                loadMillis.put(task.getKey(), task.getValue().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                ready = false;
+                loadMillis.put(task.getKey(), "failed: " + e.getCause());
+                System.err.println("Loading " + task.getKey() + " failed; it will be retried on first use");
+                e.getCause().printStackTrace();
+            } catch (TimeoutException e) {
+                ready = false;
+                loadMillis.put(task.getKey(), "timed out");
+                System.err.println("Loading " + task.getKey() + " did not finish within " + timeoutSeconds + "s");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ready = false;
+                break;
+            }
+        }
+
+        double timeToReady = (System.nanoTime() - start) / 1_000_000.0;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("ready", ready);
+        metrics.put("timeToReadyMillis", timeToReady);
+        metrics.put("threads", threads);
+        metrics.put("jaxbContextBuildMillis", JaxbSupport.getContextBuildMillis());
+        metrics.put("loadMillis", loadMillis);
+        startupMetrics = Collections.unmodifiableMap(metrics);
+        System.out.printf("Repositories %s in %.1f ms%n", ready ? "ready" : "partially loaded", timeToReady);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        // A repository that cannot write must not keep the others from flushing
+        for (Runnable flush : new Runnable[] { ActivityRepository.getInstance()::flush,
+                TripRepository.getInstance()::flush, UserRepository.getInstance()::flush,
+                CityRepository.getInstance()::flush }) {
+            try {
+                flush.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Time-to-ready and per-repository load times for the metrics endpoint.
+     */
+    public static Map<String, Object> getStartupMetrics() {
+        return startupMetrics;
+    }
+}
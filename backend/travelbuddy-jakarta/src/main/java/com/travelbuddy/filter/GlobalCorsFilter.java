@@ -31,7 +31,10 @@ public class GlobalCorsFilter implements Filter {
         
         // Allow common headers, including SOAP specific ones
         httpResponse.setHeader("Access-Control-Allow-Headers", 
-            "origin, content-type, accept, authorization, SOAPAction");
+            "origin, content-type, accept, authorization, SOAPAction, X-Timeout-Ms");
+
+        // Let scripts read where a submitted job lives, when to retry a full queue and the next page of a list
+        httpResponse.setHeader("Access-Control-Expose-Headers", "Location, Retry-After, Link");
         
         // Allow credentials
         httpResponse.setHeader("Access-Control-Allow-Credentials", "true");
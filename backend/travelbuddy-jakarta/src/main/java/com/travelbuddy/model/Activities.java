@@ -14,6 +14,10 @@ public class Activities {
     @XmlElement(name = "activity")
     private List<Activity> activities = new ArrayList<>();
 
+    // Next id to allocate, so ids of deleted entries are never reused
+    @XmlAttribute
+    private Long nextId;
+
     public Activities() {
     }
 
@@ -32,6 +36,14 @@ public class Activities {
         this.activities = activities;
     }
 
+    public Long getNextId() {
+        return nextId;
+    }
+
+    public void setNextId(Long nextId) {
+        this.nextId = nextId;
+    }
+
     public void addActivity(Activity activity) {
         if (this.activities == null) {
             this.activities = new ArrayList<>();
@@ -14,6 +14,10 @@ public class Cities {
     @XmlElement(name = "city")
     private List<City> cities = new ArrayList<>();
 
+    // Next id to allocate, so ids of deleted entries are never reused
+    @XmlAttribute
+    private Long nextId;
+
     public Cities() {
     }
 
@@ -32,6 +36,14 @@ public class Cities {
         this.cities = cities;
     }
 
+    public Long getNextId() {
+        return nextId;
+    }
+
+    public void setNextId(Long nextId) {
+        this.nextId = nextId;
+    }
+
     public void addCity(City city) {
         if (this.cities == null) {
             this.cities = new ArrayList<>();
@@ -1,5 +1,6 @@
 package com.travelbuddy.model;
 
+import jakarta.json.bind.annotation.JsonbTransient;
 import jakarta.xml.bind.annotation.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,6 +21,13 @@ public class Itinerary {
     @XmlElement
     private String city;
 
+    @XmlElement
+    private boolean partial; // stopped by a deadline or cancellation before every day was planned
+
+    @XmlTransient
+    @JsonbTransient
+    private boolean fallback; // a stand-in for the plan asked for, never cached or shared; not sent to clients
+
     @XmlElement
     private double totalCost;
 
@@ -73,6 +81,23 @@ public class Itinerary {
         this.message = message;
     }
 
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
+    @JsonbTransient
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public void setFallback(boolean fallback) {
+        this.fallback = fallback;
+    }
+
     public String getCity() {
         return city;
     }
@@ -140,6 +165,7 @@ public class Itinerary {
     public String toString() {
         return "Itinerary{" +
                 "success=" + success +
+                ", partial=" + partial +
                 ", city='" + city + '\'' +
                 ", totalCost=" + totalCost +
                 ", totalDays=" + totalDays +
@@ -0,0 +1,70 @@
+package com.travelbuddy.model;
+
+import jakarta.xml.bind.annotation.*;
+
+/**
+ * One slot of an itinerary whose activity changed during a re-plan.
+ * An activity that was removed without replacement has no addedActivityId,
+ * one put into an empty slot has no removedActivityId.
+ */
+@XmlRootElement(name = "change")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ItineraryChange {
+
+    @XmlAttribute
+    private int dayNumber;
+
+    @XmlElement
+    private String timeSlot;
+
+    @XmlElement
+    private Long removedActivityId;
+
+    @XmlElement
+    private Long addedActivityId;
+
+    // Default constructor for JAXB
+    public ItineraryChange() {
+    }
+
+    // Full constructor
+    public ItineraryChange(int dayNumber, String timeSlot, Long removedActivityId, Long addedActivityId) {
+        this.dayNumber = dayNumber;
+        this.timeSlot = timeSlot;
+        this.removedActivityId = removedActivityId;
+        this.addedActivityId = addedActivityId;
+    }
+
+    // Getters and Setters
+    public int getDayNumber() {
+        return dayNumber;
+    }
+
+    public void setDayNumber(int dayNumber) {
+        this.dayNumber = dayNumber;
+    }
+
+    public String getTimeSlot() {
+        return timeSlot;
+    }
+
+    public void setTimeSlot(String timeSlot) {
+        this.timeSlot = timeSlot;
+    }
+
+    public Long getRemovedActivityId() {
+        return removedActivityId;
+    }
+
+    public void setRemovedActivityId(Long removedActivityId) {
+        this.removedActivityId = removedActivityId;
+    }
+
+    public Long getAddedActivityId() {
+        return addedActivityId;
+    }
+
+    public void setAddedActivityId(Long addedActivityId) {
+        this.addedActivityId = addedActivityId;
+    }
+}
@@ -17,6 +17,9 @@ public class ItineraryDay {
     @XmlElement
     private String date;
 
+    @XmlElement
+    private String city; // set on multi-city itineraries only
+
     @XmlElementWrapper(name = "activities")
     @XmlElement(name = "activity")
     private List<ScheduledActivity> activities = new ArrayList<>();
@@ -53,6 +56,14 @@ public class ItineraryDay {
         this.date = date;
     }
 
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
     public List<ScheduledActivity> getActivities() {
         return activities;
     }
@@ -0,0 +1,107 @@
+package com.travelbuddy.model;
+
+import jakarta.xml.bind.annotation.*;
+
+/**
+ * State of an asynchronous itinerary job: queued, running, done, failed or
+ * cancelled, with the itinerary once it is done.
+ */
+@XmlRootElement(name = "itineraryJob")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ItineraryJob {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+
+    @XmlAttribute
+    private String id;
+
+    @XmlElement
+    private String status;
+
+    @XmlElement
+    private String submittedAt;
+
+    @XmlElement
+    private String startedAt;
+
+    @XmlElement
+    private String completedAt;
+
+    @XmlElement
+    private Itinerary itinerary;
+
+    // Default constructor for JAXB
+    public ItineraryJob() {
+    }
+
+    // Full constructor
+    public ItineraryJob(String id, String status, String submittedAt, String startedAt, String completedAt,
+            Itinerary itinerary) {
+        this.id = id;
+        this.status = status;
+        this.submittedAt = submittedAt;
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.itinerary = itinerary;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(String submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public String getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(String startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public String getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(String completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Itinerary getItinerary() {
+        return itinerary;
+    }
+
+    public void setItinerary(Itinerary itinerary) {
+        this.itinerary = itinerary;
+    }
+
+    /**
+     * Whether the job has finished, whatever the outcome.
+     */
+    public boolean isFinished() {
+        return DONE.equals(status) || FAILED.equals(status) || CANCELLED.equals(status);
+    }
+}
@@ -0,0 +1,66 @@
+package com.travelbuddy.model;
+
+import jakarta.xml.bind.annotation.*;
+
+/**
+ * One stop of a multi-city trip. Duration and budget are optional; when left
+ * at 0 they are taken from what the other legs leave of the trip's totals.
+ */
+@XmlRootElement(name = "leg")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ItineraryLeg {
+
+    @XmlElement
+    private String city;
+
+    @XmlElement
+    private int duration; // in days, 0 = auto
+
+    @XmlElement
+    private double budget; // 0 = auto
+
+    // Default constructor for JAXB
+    public ItineraryLeg() {
+    }
+
+    // Full constructor
+    public ItineraryLeg(String city, int duration, double budget) {
+        this.city = city;
+        this.duration = duration;
+        this.budget = budget;
+    }
+
+    // Getters and Setters
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    public void setBudget(double budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    public String toString() {
+        return "ItineraryLeg{" +
+                "city='" + city + '\'' +
+                ", duration=" + duration +
+                ", budget=" + budget +
+                '}';
+    }
+}
@@ -27,6 +27,12 @@ public class ItineraryRequest {
     @XmlElement
     private String preference; // relaxed, balanced, intensive
 
+    @XmlElement
+    private boolean optimize; // maximise total rating within budget instead of first-fit
+
+    @XmlElement
+    private long timeoutMs; // 0 = server default
+
     // Default constructor for JAXB
     public ItineraryRequest() {
     }
@@ -82,6 +88,22 @@ public class ItineraryRequest {
         this.preference = preference;
     }
 
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
     @Override
     public String toString() {
         return "ItineraryRequest{" +
@@ -90,6 +112,8 @@ public class ItineraryRequest {
                 ", duration=" + duration +
                 ", activityTypes=" + activityTypes +
                 ", preference='" + preference + '\'' +
+                ", optimize=" + optimize +
+                ", timeoutMs=" + timeoutMs +
                 '}';
     }
 }
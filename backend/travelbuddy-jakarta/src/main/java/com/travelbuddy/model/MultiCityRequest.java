@@ -0,0 +1,121 @@
+package com.travelbuddy.model;
+
+import jakarta.xml.bind.annotation.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request object for a multi-city itinerary (e.g. Paris, then Rome, then Barcelona).
+ * Budget and duration are for the whole trip; types, preference and mode apply to every leg.
+ */
+@XmlRootElement(name = "multiCityRequest")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class MultiCityRequest {
+
+    @XmlElementWrapper(name = "legs")
+    @XmlElement(name = "leg")
+    private List<ItineraryLeg> legs = new ArrayList<>();
+
+    @XmlElement
+    private double budget;
+
+    @XmlElement
+    private int duration; // in days, 0 = sum of the legs' durations
+
+    @XmlElementWrapper(name = "activityTypes")
+    @XmlElement(name = "type")
+    private List<String> activityTypes = new ArrayList<>();
+
+    @XmlElement
+    private String preference; // relaxed, balanced, intensive
+
+    @XmlElement
+    private boolean optimize;
+
+    @XmlElement
+    private long timeoutMs; // 0 = server default
+
+    // Default constructor for JAXB
+    public MultiCityRequest() {
+    }
+
+    // Full constructor
+    public MultiCityRequest(List<ItineraryLeg> legs, double budget, int duration,
+            List<String> activityTypes, String preference) {
+        this.legs = legs;
+        this.budget = budget;
+        this.duration = duration;
+        this.activityTypes = activityTypes;
+        this.preference = preference;
+    }
+
+    // Getters and Setters
+    public List<ItineraryLeg> getLegs() {
+        return legs;
+    }
+
+    public void setLegs(List<ItineraryLeg> legs) {
+        this.legs = legs;
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    public void setBudget(double budget) {
+        this.budget = budget;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    public List<String> getActivityTypes() {
+        return activityTypes;
+    }
+
+    public void setActivityTypes(List<String> activityTypes) {
+        this.activityTypes = activityTypes;
+    }
+
+    public String getPreference() {
+        return preference;
+    }
+
+    public void setPreference(String preference) {
+        this.preference = preference;
+    }
+
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiCityRequest{" +
+                "legs=" + legs +
+                ", budget=" + budget +
+                ", duration=" + duration +
+                ", activityTypes=" + activityTypes +
+                ", preference='" + preference + '\'' +
+                ", optimize=" + optimize +
+                ", timeoutMs=" + timeoutMs +
+                '}';
+    }
+}
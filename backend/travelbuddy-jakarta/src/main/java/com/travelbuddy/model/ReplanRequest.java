@@ -0,0 +1,76 @@
+package com.travelbuddy.model;
+
+import jakarta.xml.bind.annotation.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request object for re-planning an existing itinerary after edits.
+ * The request holds the inputs the itinerary was built from, with the new budget
+ * or duration if those changed; pinned activities stay where they are and
+ * removed ones are replaced.
+ */
+@XmlRootElement(name = "replanRequest")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ReplanRequest {
+
+    @XmlElement(name = "itineraryRequest")
+    private ItineraryRequest request;
+
+    @XmlElement
+    private Itinerary itinerary;
+
+    @XmlElementWrapper(name = "pinnedActivities")
+    @XmlElement(name = "activityId")
+    private List<Long> pinnedActivityIds = new ArrayList<>();
+
+    @XmlElementWrapper(name = "removedActivities")
+    @XmlElement(name = "activityId")
+    private List<Long> removedActivityIds = new ArrayList<>();
+
+    // Default constructor for JAXB
+    public ReplanRequest() {
+    }
+
+    // Full constructor
+    public ReplanRequest(ItineraryRequest request, Itinerary itinerary,
+            List<Long> pinnedActivityIds, List<Long> removedActivityIds) {
+        this.request = request;
+        this.itinerary = itinerary;
+        this.pinnedActivityIds = pinnedActivityIds;
+        this.removedActivityIds = removedActivityIds;
+    }
+
+    // Getters and Setters
+    public ItineraryRequest getRequest() {
+        return request;
+    }
+
+    public void setRequest(ItineraryRequest request) {
+        this.request = request;
+    }
+
+    public Itinerary getItinerary() {
+        return itinerary;
+    }
+
+    public void setItinerary(Itinerary itinerary) {
+        this.itinerary = itinerary;
+    }
+
+    public List<Long> getPinnedActivityIds() {
+        return pinnedActivityIds;
+    }
+
+    public void setPinnedActivityIds(List<Long> pinnedActivityIds) {
+        this.pinnedActivityIds = pinnedActivityIds;
+    }
+
+    public List<Long> getRemovedActivityIds() {
+        return removedActivityIds;
+    }
+
+    public void setRemovedActivityIds(List<Long> removedActivityIds) {
+        this.removedActivityIds = removedActivityIds;
+    }
+}
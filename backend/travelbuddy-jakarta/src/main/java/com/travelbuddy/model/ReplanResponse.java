@@ -0,0 +1,77 @@
+package com.travelbuddy.model;
+
+import jakarta.xml.bind.annotation.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response object of a re-plan: the updated itinerary and the slots that changed.
+ */
+@XmlRootElement(name = "replanResponse")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ReplanResponse {
+
+    @XmlElement
+    private boolean success;
+
+    @XmlElement
+    private String message;
+
+    @XmlElement
+    private Itinerary itinerary;
+
+    @XmlElementWrapper(name = "changes")
+    @XmlElement(name = "change")
+    private List<ItineraryChange> changes = new ArrayList<>();
+
+    // Default constructor
+    public ReplanResponse() {
+    }
+
+    // Success constructor
+    public ReplanResponse(Itinerary itinerary, List<ItineraryChange> changes) {
+        this.success = true;
+        this.message = itinerary.getMessage();
+        this.itinerary = itinerary;
+        this.changes = changes;
+    }
+
+    // Error constructor
+    public ReplanResponse(boolean success, String message) {
+        this.success = success;
+        this.message = message;
+    }
+
+    // Getters and Setters
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Itinerary getItinerary() {
+        return itinerary;
+    }
+
+    public void setItinerary(Itinerary itinerary) {
+        this.itinerary = itinerary;
+    }
+
+    public List<ItineraryChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<ItineraryChange> changes) {
+        this.changes = changes;
+    }
+}
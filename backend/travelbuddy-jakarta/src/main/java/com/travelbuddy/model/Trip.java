@@ -63,6 +63,21 @@ public class Trip {
         this.activityIds = new ArrayList<>();
     }
 
+    // Copy constructor, used for copy-on-write updates
+    public Trip(Trip other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.userId = other.userId;
+        this.city = other.city;
+        this.startDate = other.startDate;
+        this.endDate = other.endDate;
+        this.numberOfDays = other.numberOfDays;
+        this.budget = other.budget;
+        this.activityIds = other.activityIds == null ? new ArrayList<>() : new ArrayList<>(other.activityIds);
+        this.status = other.status;
+        this.createdAt = other.createdAt;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -14,6 +14,10 @@ public class Trips {
     @XmlElement(name = "trip")
     private List<Trip> trips = new ArrayList<>();
 
+    // Next id to allocate, so ids of deleted entries are never reused
+    @XmlAttribute
+    private Long nextId;
+
     public Trips() {
     }
 
@@ -32,6 +36,14 @@ public class Trips {
         this.trips = trips;
     }
 
+    public Long getNextId() {
+        return nextId;
+    }
+
+    public void setNextId(Long nextId) {
+        this.nextId = nextId;
+    }
+
     public void addTrip(Trip trip) {
         if (this.trips == null) {
             this.trips = new ArrayList<>();
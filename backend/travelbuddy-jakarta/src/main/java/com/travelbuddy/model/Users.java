@@ -14,6 +14,10 @@ public class Users {
     @XmlElement(name = "user")
     private List<User> users = new ArrayList<>();
 
+    // Next id to allocate, so ids of deleted entries are never reused
+    @XmlAttribute
+    private Long nextId;
+
     public Users() {
     }
 
@@ -32,6 +36,14 @@ public class Users {
         this.users = users;
     }
 
+    public Long getNextId() {
+        return nextId;
+    }
+
+    public void setNextId(Long nextId) {
+        this.nextId = nextId;
+    }
+
     public void addUser(User user) {
         if (this.users == null) {
             this.users = new ArrayList<>();
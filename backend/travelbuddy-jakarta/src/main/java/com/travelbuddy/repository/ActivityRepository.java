@@ -2,26 +2,18 @@ package com.travelbuddy.repository;
 
 import com.travelbuddy.model.Activities;
 import com.travelbuddy.model.Activity;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.annotation.PostConstruct;
 
-import java.io.InputStream;
-import java.io.FileOutputStream;
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
  * Repository for Activity entities using XML as storage.
  */
 @ApplicationScoped
-public class ActivityRepository {
+public class ActivityRepository extends XmlRepository<Activity, Activities> {
 
     private static ActivityRepository instance;
 
@@ -33,121 +25,78 @@ public class ActivityRepository {
         return instance;
     }
 
-    private static final String XML_FILE = "data/activities.xml";
-    private Activities activities;
-    private JAXBContext context;
-
-    public void init() {
-        try {
-            context = JAXBContext.newInstance(Activities.class);
-            loadFromXml();
-        } catch (JAXBException e) {
-            e.printStackTrace();
-            activities = new Activities();
-        }
+    private final IndexedStore.MultiIndex<Activity> byCity = store.addMultiIndex(Activity::getCity);
+    private final IndexedStore.MultiIndex<Activity> byType = store.addMultiIndex(Activity::getType);
+
+    public ActivityRepository() {
+        super("activities", Activity.class, Activities.class, SnapshotCodecs.ACTIVITY, Activity::getId);
     }
 
-    private void loadFromXml() {
-        try {
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            InputStream is = getClass().getClassLoader().getResourceAsStream(XML_FILE);
-            if (is != null) {
-                activities = (Activities) unmarshaller.unmarshal(is);
-            } else {
-                activities = new Activities();
-            }
-        } catch (JAXBException e) {
-            e.printStackTrace();
-            activities = new Activities();
-        }
+    @Override
+    protected Activities wrap(List<Activity> items, Long nextId) {
+        Activities activities = new Activities(items);
+        activities.setNextId(nextId);
+        return activities;
     }
 
-    private void saveToXml() {
-        try {
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-
-            // Get the resource URL and save to file
-            java.net.URL resource = getClass().getClassLoader().getResource(XML_FILE);
-            if (resource != null) {
-                File file = new File(resource.toURI());
-                marshaller.marshal(activities, new FileOutputStream(file));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    @Override
+    protected void setItems(Activities activities, List<Activity> items) {
+        activities.setActivities(items);
     }
 
-    public List<Activity> findAll() {
-        if (activities == null || activities.getActivities() == null) {
-            return new ArrayList<>();
-        }
-        return new ArrayList<>(activities.getActivities());
+    @Override
+    protected Long getNextId(Activities activities) {
+        return activities.getNextId();
     }
 
-    public Optional<Activity> findById(Long id) {
-        return findAll().stream()
-                .filter(a -> a.getId().equals(id))
-                .findFirst();
+    @Override
+    protected void prepareNew(Activity activity, Long id) {
+        activity.setId(id);
     }
 
+    /**
+     * @return a copy in id order
+     */
     public List<Activity> findByCity(String city) {
-        return findAll().stream()
-                .filter(a -> a.getCity().equalsIgnoreCase(city))
-                .collect(Collectors.toList());
+        return new ArrayList<>(byCity.get(city));
+    }
+
+    public IndexedStore.Page<Activity> findPageByCity(String city, Long after, int limit) {
+        return byCity.page(city, after, limit);
     }
 
+    /**
+     * @return a copy in id order
+     */
     public List<Activity> findByType(String type) {
-        return findAll().stream()
-                .filter(a -> a.getType().equalsIgnoreCase(type))
-                .collect(Collectors.toList());
+        return new ArrayList<>(byType.get(type));
+    }
+
+    public IndexedStore.Page<Activity> findPageByType(String type, Long after, int limit) {
+        return byType.page(type, after, limit);
     }
 
     public List<Activity> findByCityAndTypes(String city, List<String> types) {
-        return findAll().stream()
-                .filter(a -> a.getCity().equalsIgnoreCase(city))
+        return byCity.get(city).stream()
                 .filter(a -> types.contains(a.getType().toLowerCase()))
                 .collect(Collectors.toList());
     }
 
     public List<Activity> findByCityAndBudget(String city, double maxCost) {
-        return findAll().stream()
-                .filter(a -> a.getCity().equalsIgnoreCase(city))
+        return byCity.get(city).stream()
                 .filter(a -> a.getCost() <= maxCost)
                 .collect(Collectors.toList());
     }
 
-    public Activity save(Activity activity) {
-        if (activity.getId() == null) {
-            // Generate new ID
-            Long maxId = findAll().stream()
-                    .mapToLong(Activity::getId)
-                    .max()
-                    .orElse(0L);
-            activity.setId(maxId + 1);
-        } else {
-            // Remove existing if updating
-            activities.getActivities().removeIf(a -> a.getId().equals(activity.getId()));
-        }
-        activities.addActivity(activity);
-        saveToXml();
-        return activity;
-    }
-
-    public void deleteById(Long id) {
-        activities.getActivities().removeIf(a -> a.getId().equals(id));
-        saveToXml();
-    }
-
     public List<String> findDistinctTypes() {
-        return findAll().stream()
+        return store.values().stream()
                 .map(Activity::getType)
                 .distinct()
                 .collect(Collectors.toList());
     }
 
     public List<String> findDistinctTypesByCity(String city) {
-        return findByCity(city).stream()
+        return byCity.get(city).stream()
                 .map(Activity::getType)
                 .distinct()
                 .collect(Collectors.toList());
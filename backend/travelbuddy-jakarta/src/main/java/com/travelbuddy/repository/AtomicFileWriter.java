@@ -0,0 +1,67 @@
+package com.travelbuddy.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+
+/**
+ * Crash-safe replacement of a data file.
+ * Content goes to a temporary file next to the target, which is synced according
+ * to the fsync policy and then atomically renamed over the target, followed by a
+ * directory sync. A crash at any point leaves either the old or the new file,
+ * never a truncated one; a leftover temporary file is removed by {@link DataDirectory}.
+ */
+public final class AtomicFileWriter {
+
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Writes the file content to the given stream.
+     */
+    public interface Content {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    private AtomicFileWriter() {
+    }
+
+    public static void write(Path target, Content content, FsyncPolicy policy) throws IOException {
+        write(target, content, policy, Function.identity());
+    }
+
+    /**
+     * @param decorator wraps the channel the content is written through (fault injection in tests)
+     */
+    static void write(Path target, Content content, FsyncPolicy policy,
+            Function<WritableByteChannel, WritableByteChannel> decorator) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(decorator.apply(channel)), 64 * 1024);
+            content.writeTo(out);
+            out.flush();
+            policy.syncFile(channel);
+        } catch (Exception e) {
+            Files.deleteIfExists(temp);
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException("Could not write " + target.getFileName() + ": " + e.getMessage(), e);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        policy.syncDirectory(target.toAbsolutePath().getParent());
+    }
+}
@@ -0,0 +1,319 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.config.AppConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary alternative to the XML snapshots, for fast cold start.
+ * XML stays the import/export format; {@link SnapshotConverter} converts between the two.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * magic "TBSN" | version int | kind string | nextId long (-1 if none)
+ * dictionary: count int, then count strings
+ * records:    count int, then count times (length int, payload)
+ * </pre>
+ * Strings are a byte length (-1 for null) followed by UTF-8 bytes. Fields that
+ * repeat across entities (city, type, status...) are written as a reference into
+ * the dictionary, so each distinct value is stored and decoded once. Records are
+ * length-prefixed so a reader can skip fields appended by a later version.
+ */
+public final class BinarySnapshot {
+
+    public static final String FILE_SUFFIX = ".bin";
+    static final int MAGIC = 0x5442534E;
+    static final int VERSION = 1;
+
+    /**
+     * Field-by-field encoding of one entity type. Fields may only be appended,
+     * reading them conditionally on {@link Input#getVersion()}.
+     */
+    public interface Codec<T> {
+        String kind();
+
+        void write(T entity, Output out) throws IOException;
+
+        T read(Input in);
+    }
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Whether repositories also write a binary snapshot on compaction (travelbuddy.snapshot.binary).
+     */
+    public static boolean isEnabled() {
+        return AppConfig.getBoolean("travelbuddy.snapshot.binary", false);
+    }
+
+    /**
+     * True if the binary snapshot exists and is at least as recent as the XML one.
+     */
+    public static boolean isPreferred(Path binary, Path xml) {
+        if (binary == null || !Files.exists(binary)) {
+            return false;
+        }
+        try {
+            return xml == null || !Files.exists(xml)
+                    || Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(xml)) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether two entities have the same content in every encoded field.
+     * Used to tell real changes from unchanged entities when a data file is reloaded.
+     */
+    public static <T> boolean sameContent(Codec<T> codec, T a, T b) {
+        try {
+            return Arrays.equals(encode(codec, a), encode(codec, b));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static <T> byte[] encode(Codec<T> codec, T entity) throws IOException {
+        Output out = new Output(true);
+        out.beginRecord();
+        codec.write(entity, out);
+        out.out.flush();
+        return out.record.toByteArray();
+    }
+
+    public static <T> void write(Path target, Codec<T> codec, Collection<T> entities, Long nextId,
+            FsyncPolicy policy) throws IOException {
+        Output records = new Output(false);
+        for (T entity : entities) {
+            records.beginRecord();
+            codec.write(entity, records);
+            records.endRecord();
+        }
+        AtomicFileWriter.write(target, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, codec.kind());
+            out.writeLong(nextId == null ? -1 : nextId);
+            out.writeInt(records.dictionary.size());
+            for (String symbol : records.symbols()) {
+                writeString(out, symbol);
+            }
+            out.writeInt(entities.size());
+            records.buffer.writeTo(out);
+            out.flush();
+        }, policy);
+    }
+
+    /**
+     * Read a snapshot through a read-only memory mapping, passing each entity to sink.
+     *
+     * @return the stored nextId, or null if none was stored
+     */
+    public static <T> Long read(Path file, Codec<T> codec, Consumer<T> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file.getFileName() + " is too large to map");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException(file.getFileName() + " is not a binary snapshot");
+                }
+                int version = buffer.getInt();
+                if (version < 1 || version > VERSION) {
+                    throw new IOException(file.getFileName() + " has unsupported version " + version);
+                }
+                String kind = readString(buffer);
+                if (!codec.kind().equals(kind)) {
+                    throw new IOException(file.getFileName() + " holds " + kind + ", expected " + codec.kind());
+                }
+                long nextId = buffer.getLong();
+                String[] dictionary = new String[checkedCount(buffer)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(buffer);
+                }
+                Input in = new Input(buffer, version, dictionary);
+                int count = checkedCount(buffer);
+                for (int i = 0; i < count; i++) {
+                    int length = buffer.getInt();
+                    int end = buffer.position() + length;
+                    sink.accept(codec.read(in));
+                    // Skip fields written by a newer version
+                    buffer.position(end);
+                }
+                return nextId < 0 ? null : nextId;
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IOException(file.getFileName() + " is truncated or corrupt", e);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * A count or length read from the file, rejected if it cannot fit in what is left.
+     */
+    private static int checkedCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Record writer handed to {@link Codec#write}.
+     */
+    public static final class Output {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+        private final DataOutputStream out = new DataOutputStream(record);
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final boolean inlineSymbols;
+
+        private Output(boolean inlineSymbols) {
+            this.inlineSymbols = inlineSymbols;
+        }
+
+        void beginRecord() {
+            record.reset();
+        }
+
+        void endRecord() throws IOException {
+            out.flush();
+            int length = record.size();
+            buffer.write(length >>> 24);
+            buffer.write(length >>> 16);
+            buffer.write(length >>> 8);
+            buffer.write(length);
+            record.writeTo(buffer);
+        }
+
+        String[] symbols() {
+            String[] symbols = new String[dictionary.size()];
+            dictionary.forEach((symbol, index) -> symbols[index] = symbol);
+            return symbols;
+        }
+
+        public void writeInt(int value) throws IOException {
+            out.writeInt(value);
+        }
+
+        public void writeLong(long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        public void writeDouble(double value) throws IOException {
+            out.writeDouble(value);
+        }
+
+        public void writeNullableLong(Long value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value);
+            }
+        }
+
+        /**
+         * A string stored inline, for values that rarely repeat (names, descriptions).
+         */
+        public void writeString(String value) throws IOException {
+            BinarySnapshot.writeString(out, value);
+        }
+
+        /**
+         * A string stored once in the dictionary, for values shared by many entities.
+         */
+        public void writeSymbol(String value) throws IOException {
+            if (inlineSymbols) {
+                writeString(value);
+                return;
+            }
+            out.writeInt(value == null ? -1 : dictionary.computeIfAbsent(value, v -> dictionary.size()));
+        }
+    }
+
+    /**
+     * Record reader handed to {@link Codec#read}.
+     */
+    public static final class Input {
+
+        private final ByteBuffer buffer;
+        private final int version;
+        private final String[] dictionary;
+
+        private Input(ByteBuffer buffer, int version, String[] dictionary) {
+            this.buffer = buffer;
+            this.version = version;
+            this.dictionary = dictionary;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public int readInt() {
+            return buffer.getInt();
+        }
+
+        public long readLong() {
+            return buffer.getLong();
+        }
+
+        public double readDouble() {
+            return buffer.getDouble();
+        }
+
+        public Long readNullableLong() {
+            return buffer.get() != 0 ? buffer.getLong() : null;
+        }
+
+        public String readString() {
+            return BinarySnapshot.readString(buffer);
+        }
+
+        public String readSymbol() {
+            int index = buffer.getInt();
+            return index < 0 ? null : dictionary[index];
+        }
+    }
+}
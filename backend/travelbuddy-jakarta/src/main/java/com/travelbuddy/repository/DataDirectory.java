@@ -0,0 +1,69 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.config.AppConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Location of the repositories' data files outside the deployed WAR.
+ * Configured with travelbuddy.data.dir (default ~/.travelbuddy/data). On first use
+ * a missing XML file is seeded from the copy bundled under data/ on the classpath,
+ * and temporary files left by an interrupted snapshot write are removed.
+ */
+public final class DataDirectory {
+
+    private static final String BUNDLED_DIR = "data/";
+
+    private DataDirectory() {
+    }
+
+    public static Path getPath() {
+        String configured = AppConfig.getString("travelbuddy.data.dir", null);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".travelbuddy", "data");
+    }
+
+    /**
+     * @return the path of the data file, or null if the directory cannot be used
+     */
+    public static Path resolve(String fileName) {
+        Path dir = getPath();
+        try {
+            Files.createDirectories(dir);
+            cleanUpTemporaryFiles(dir, fileName);
+            Path file = dir.resolve(fileName);
+            if (!Files.exists(file)) {
+                seed(file, fileName);
+            }
+            return file;
+        } catch (IOException e) {
+            System.err.println("Data directory " + dir + " is not usable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void seed(Path file, String fileName) throws IOException {
+        try (InputStream bundled = DataDirectory.class.getClassLoader().getResourceAsStream(BUNDLED_DIR + fileName)) {
+            if (bundled != null) {
+                AtomicFileWriter.write(file, out -> bundled.transferTo(out), FsyncPolicy.fromConfig());
+                System.out.println("Seeded " + file + " from bundled data");
+            }
+        }
+    }
+
+    private static void cleanUpTemporaryFiles(Path dir, String fileName) throws IOException {
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(dir, fileName + "*" + AtomicFileWriter.TEMP_SUFFIX)) {
+            for (Path temp : temps) {
+                System.err.println("Removing interrupted write " + temp);
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.config.AppConfig;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reloads repositories when their data files are edited out of band.
+ * The data directory is watched with a WatchService; a change to a watched file
+ * schedules its reload after travelbuddy.reload.debounceMs, so an editor that
+ * writes a file in several steps triggers one reload. Files the repositories
+ * write themselves are recognised by their modification time and skipped, and
+ * a repository asks {@link #hasUnreadEdit} before overwriting its file so that
+ * an edit whose reload is still pending is not lost.
+ * Disable with travelbuddy.reload.enabled=false.
+ */
+public final class DataFileWatcher {
+
+    private static DataFileWatcher instance;
+
+    public static synchronized DataFileWatcher getInstance() {
+        if (instance == null) {
+            instance = new DataFileWatcher();
+        }
+        return instance;
+    }
+
+    private final boolean enabled = AppConfig.getBoolean("travelbuddy.reload.enabled", true);
+    private final long debounceMillis = AppConfig.getLong("travelbuddy.reload.debounceMs", 250);
+    private final Map<Path, Runnable> reloaders = new ConcurrentHashMap<>();
+    // Modification time of the version each repository last wrote or read
+    private final Map<Path, FileTime> lastSeen = new ConcurrentHashMap<>();
+    private final Map<Path, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watchedDirectories = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "data-file-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong ownWritesSkipped = new AtomicLong();
+    private WatchService watchService;
+
+    private DataFileWatcher() {
+    }
+
+    /**
+     * Run reload (on a background thread) whenever file changes on disk. The
+     * caller has just read file, so its current version counts as seen.
+     */
+    public synchronized void watch(Path file, Runnable reload) {
+        if (!enabled) {
+            return;
+        }
+        Path target = file.toAbsolutePath().normalize();
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                Thread thread = new Thread(this::run, "data-file-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            Path directory = target.getParent();
+            if (!watchedDirectories.containsKey(directory)) {
+                watchedDirectories.put(directory, directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+            }
+            reloaders.put(target, reload);
+            if (Files.exists(target)) {
+                lastSeen.put(target, Files.getLastModifiedTime(target));
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot watch " + target + " for changes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record that the repository itself just wrote file, so the resulting event is not taken for an edit.
+     */
+    public void markOwnWrite(Path file) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            lastSeen.put(file.toAbsolutePath().normalize(), Files.getLastModifiedTime(file));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Whether file changed on disk since the repository last wrote or read it,
+     * i.e. it holds an edit that has not been reloaded yet.
+     */
+    public boolean hasUnreadEdit(Path file) {
+        if (!enabled) {
+            return false;
+        }
+        Path target = file.toAbsolutePath().normalize();
+        FileTime seen = lastSeen.get(target);
+        try {
+            return seen != null && Files.exists(target) && !Files.getLastModifiedTime(target).equals(seen);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    reloaders.keySet().stream().filter(f -> f.getParent().equals(directory)).forEach(this::schedule);
+                } else {
+                    Path changed = directory.resolve((Path) event.context());
+                    if (reloaders.containsKey(changed)) {
+                        schedule(changed);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(directory);
+            }
+        }
+    }
+
+    private void schedule(Path file) {
+        scheduled.compute(file, (f, pending) -> {
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            return reloadExecutor.schedule(() -> reload(f), debounceMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void reload(Path file) {
+        try {
+            if (!Files.exists(file)) {
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (modified.equals(lastSeen.get(file))) {
+                ownWritesSkipped.incrementAndGet();
+                return;
+            }
+            Runnable reloader = reloaders.get(file);
+            if (reloader != null) {
+                reloader.run();
+                lastSeen.put(file, modified);
+                reloads.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Reloading " + file.getFileName() + " failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Counters for the metrics endpoint.
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("watchedFiles", reloaders.size());
+        metrics.put("reloads", reloads.get());
+        metrics.put("ownWritesSkipped", ownWritesSkipped.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,282 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.config.AppConfig;
+import jakarta.xml.bind.JAXBException;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of repository mutations.
+ * Each save or delete is written as one small record, so a single update no longer
+ * re-marshals the whole XML file. The XML snapshot is only rewritten on compaction,
+ * and on startup the journal is replayed on top of it.
+ *
+ * Record layout: op (1 byte), id (8 bytes), payload length (4 bytes),
+ * payload (entity as an XML fragment, empty for deletes), CRC32 (4 bytes).
+ * Sequence records carry the id sequence's next value in the id field.
+ *
+ * Appends are buffered; {@link #flush()} pushes everything appended so far to
+ * the file in as few writes as possible and syncs it according to the
+ * {@link FsyncPolicy}, which is what makes group commit cheap.
+ */
+public class EntityJournal<T> {
+
+    private static final byte OP_SAVE = 'S';
+    private static final byte OP_DELETE = 'D';
+    private static final byte OP_SEQUENCE = 'Q';
+    private static final int HEADER_BYTES = 1 + 8 + 4;
+    private static final int COMPACT_EVERY = AppConfig.getInt("travelbuddy.journal.compactEvery", 1000);
+
+    private final Path file;
+    private final Class<T> type;
+    private final FsyncPolicy fsyncPolicy;
+    private FileChannel channel;
+    private DataOutputStream out;
+    private int recordCount;
+    // File length and record count as of the last successful flush; -1 until the file is opened
+    private long flushedLength = -1;
+    private int flushedCount;
+
+    public EntityJournal(Path file, Class<T> type, FsyncPolicy fsyncPolicy) {
+        this.file = file;
+        this.type = type;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Replay every intact record in order. A torn record at the end of the file
+     * (crash mid-append: short read, bad length or CRC mismatch) is discarded and
+     * the file is truncated to the last good record. A record that passes its CRC
+     * but cannot be decoded is skipped and reported; the records after it are
+     * still replayed and the file is left as it is.
+     */
+    public synchronized void replay(Consumer<T> onSave, Consumer<Long> onDelete, LongConsumer onSequence) {
+        recordCount = 0;
+        if (!Files.exists(file)) {
+            return;
+        }
+        long validLength = 0;
+        boolean torn = false;
+        try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(input)))) {
+            long fileLength = input.size();
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                long id = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length > fileLength) {
+                    torn = true;
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                int crc = in.readInt();
+                if (crc != checksum(op, id, payload)) {
+                    torn = true;
+                    break;
+                }
+                long offset = validLength;
+                validLength += HEADER_BYTES + length + 4;
+                recordCount++;
+                if (op == OP_SAVE) {
+                    T entity;
+                    try {
+                        entity = JaxbSupport.unmarshal(new StreamSource(new ByteArrayInputStream(payload)), type);
+                    } catch (JAXBException e) {
+                        System.err.println("Skipping undecodable journal record for id " + id + " in "
+                                + file.getFileName() + " at offset " + offset + ": " + e);
+                        continue;
+                    }
+                    onSave.accept(entity);
+                } else if (op == OP_DELETE) {
+                    onDelete.accept(id);
+                } else if (op == OP_SEQUENCE) {
+                    onSequence.accept(id);
+                } else {
+                    System.err.println("Skipping journal record with unknown op " + op + " in "
+                            + file.getFileName() + " at offset " + offset);
+                }
+            }
+        } catch (EOFException e) {
+            // Record cut short by a crash
+            torn = true;
+        } catch (IOException e) {
+            // Not a torn tail: keep the file for a later attempt rather than cutting good records off
+            throw new UncheckedIOException("Cannot read journal " + file, e);
+        }
+        if (torn) {
+            System.err.println("Discarding torn journal tail in " + file.getFileName() + " at offset " + validLength);
+            try (FileChannel output = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                output.truncate(validLength);
+                fsyncPolicy.syncFile(output);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot truncate journal " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @throws UncheckedIOException if the record cannot be written
+     * @throws IllegalStateException if the entity cannot be marshalled
+     */
+    public synchronized void appendSave(Long id, T entity) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(512);
+        try {
+            JaxbSupport.marshalFragment(entity, payload);
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Cannot journal " + type.getSimpleName() + " " + id, e);
+        }
+        append(OP_SAVE, id, payload.toByteArray());
+    }
+
+    public synchronized void appendDelete(Long id) {
+        append(OP_DELETE, id, new byte[0]);
+    }
+
+    /**
+     * Record the id sequence's next value, so that ids reserved in bulk survive a restart.
+     */
+    public synchronized void appendSequence(long nextId) {
+        append(OP_SEQUENCE, nextId, new byte[0]);
+    }
+
+    private void append(byte op, long id, byte[] payload) {
+        try {
+            if (out == null) {
+                open();
+            }
+            out.writeByte(op);
+            out.writeLong(id);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt(checksum(op, id, payload));
+            recordCount++;
+        } catch (IOException e) {
+            discardUnflushed();
+            throw new UncheckedIOException("Cannot append to journal " + file, e);
+        }
+    }
+
+    private void open() throws IOException {
+        boolean created = !Files.exists(file);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (flushedLength >= 0 && channel.size() > flushedLength) {
+            // Drop whatever a failed flush left behind, so new records follow the last good one
+            channel.truncate(flushedLength);
+        }
+        flushedLength = channel.size();
+        channel.position(flushedLength);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        flushedCount = recordCount;
+        if (created) {
+            fsyncPolicy.syncDirectory(file.toAbsolutePath().getParent());
+        }
+    }
+
+    /**
+     * Write all buffered records to the file and sync it.
+     *
+     * @throws UncheckedIOException if they may not have reached the disk; they are then discarded
+     */
+    public synchronized void flush() {
+        if (out != null) {
+            try {
+                out.flush();
+                fsyncPolicy.syncFile(channel);
+                flushedLength = channel.size();
+                flushedCount = recordCount;
+            } catch (IOException e) {
+                discardUnflushed();
+                throw new UncheckedIOException("Cannot flush journal " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Forget the records appended since the last successful flush, e.g. when the
+     * batch they belong to failed. Whatever part of them reached the file is cut
+     * off before the next append.
+     */
+    public synchronized void discardUnflushed() {
+        if (out != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            out = null;
+            channel = null;
+            recordCount = flushedCount;
+        }
+    }
+
+    /**
+     * True once enough records have accumulated that the snapshot should be rewritten.
+     */
+    public synchronized boolean needsCompaction() {
+        return recordCount >= COMPACT_EVERY;
+    }
+
+    /**
+     * Empty the journal after its records have been folded into a fresh snapshot.
+     */
+    public synchronized void reset() {
+        close();
+        try (FileChannel output = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            output.truncate(0);
+            fsyncPolicy.syncFile(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot reset journal " + file, e);
+        }
+        flushedLength = 0;
+        recordCount = 0;
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            out = null;
+            channel = null;
+        }
+    }
+
+    private static int checksum(byte op, long id, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(op);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (id >>> shift));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
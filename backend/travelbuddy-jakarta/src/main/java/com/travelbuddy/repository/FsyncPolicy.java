@@ -0,0 +1,51 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.config.AppConfig;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * How hard data files are pushed to disk, selected with travelbuddy.persistence.fsync.
+ */
+public enum FsyncPolicy {
+
+    /** fsync file content and metadata, and the directory after a rename or create. */
+    ALWAYS,
+    /** fdatasync file content only; a crash may lose a rename but never tears a file. */
+    DATA,
+    /** Leave it to the operating system. */
+    NEVER;
+
+    public static FsyncPolicy fromConfig() {
+        String value = AppConfig.getString("travelbuddy.persistence.fsync", "always");
+        try {
+            return valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown fsync policy '" + value + "', using always");
+            return ALWAYS;
+        }
+    }
+
+    public void syncFile(FileChannel channel) throws IOException {
+        if (this != NEVER) {
+            channel.force(this == ALWAYS);
+        }
+    }
+
+    /**
+     * Make a rename or file creation in the directory durable.
+     */
+    public void syncDirectory(Path directory) {
+        if (this != ALWAYS || directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform (e.g. Windows); the rename itself is still atomic
+        }
+    }
+}
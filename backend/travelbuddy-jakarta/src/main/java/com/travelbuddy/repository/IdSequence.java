@@ -0,0 +1,58 @@
+package com.travelbuddy.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free id allocator for one entity type.
+ * The counter only moves forward: it starts past the highest id seen at load
+ * time (or the persisted nextId, if higher), so ids freed by a delete are
+ * never handed out again.
+ */
+public class IdSequence {
+
+    private final AtomicLong next = new AtomicLong(1);
+
+    /**
+     * @return a fresh id
+     */
+    public long next() {
+        return next.getAndIncrement();
+    }
+
+    /**
+     * Reserve a contiguous block of ids, e.g. for a bulk import.
+     *
+     * @return the first id of the block; the block is [first, first + count)
+     */
+    public long reserve(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Reservation size must be positive");
+        }
+        return next.getAndAdd(count);
+    }
+
+    /**
+     * Make sure the given id is never allocated, e.g. for an entity saved with an explicit id.
+     */
+    public void advancePast(long id) {
+        advanceTo(id + 1);
+    }
+
+    /**
+     * Make sure no id below the given value is allocated from now on.
+     */
+    public void advanceTo(long nextId) {
+        next.accumulateAndGet(nextId, Math::max);
+    }
+
+    /**
+     * @return the id the next call to {@link #next()} will return
+     */
+    public long peek() {
+        return next.get();
+    }
+
+    public void reset() {
+        next.set(1);
+    }
+}
@@ -0,0 +1,575 @@
+package com.travelbuddy.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory entity store shared by the XML repositories.
+ * Entities are kept by id, with optional hash indexes on other properties so
+ * that point lookups are O(1) instead of a copy-and-scan of the whole list.
+ * String keys are case-folded, matching the equalsIgnoreCase lookups the
+ * repositories used before.
+ *
+ * Concurrency: readers never lock. Lookups go to concurrent maps, iteration is
+ * weakly consistent (no ConcurrentModificationException), and multi-index
+ * buckets are concurrent sorted maps by id, so a write costs O(log n) in the
+ * bucket and {@link MultiIndex#get(Object)} returns a live view. Writers are
+ * serialized per store by {@link #writeLock()}; repositories hold it across
+ * id allocation, the index update and the journal append so that all three
+ * happen in the same order.
+ *
+ * The maps and index entries form one version of the contents. Single writes
+ * update the current version in place; {@link #load} and {@link #replaceAll}
+ * build a new version off to the side and publish it with one volatile write,
+ * so readers see either the old or the new dataset, never a half-loaded one.
+ */
+public class IndexedStore<T> {
+
+    private final Function<T, Long> idOf;
+    private final List<UniqueIndex<T>> uniqueIndexes = new CopyOnWriteArrayList<>();
+    private final List<MultiIndex<T>> multiIndexes = new CopyOnWriteArrayList<>();
+    private final List<ChangeListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Contents<T> contents = new Contents<>();
+
+    public IndexedStore(Function<T, Long> idOf) {
+        this.idOf = idOf;
+    }
+
+    public UniqueIndex<T> addUniqueIndex(Function<T, ?> keyOf) {
+        writeLock.lock();
+        try {
+            UniqueIndex<T> index = new UniqueIndex<>(this, uniqueIndexes.size(), keyOf);
+            uniqueIndexes.add(index);
+            Contents<T> current = contents;
+            current.unique.add(new UniqueEntries<>());
+            current.ordered.forEach((id, entity) -> index.add(current, id, entity));
+            return index;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public MultiIndex<T> addMultiIndex(Function<T, ?> keyOf) {
+        writeLock.lock();
+        try {
+            MultiIndex<T> index = new MultiIndex<>(this, multiIndexes.size(), keyOf);
+            multiIndexes.add(index);
+            Contents<T> current = contents;
+            current.multi.add(new MultiEntries<>());
+            index.build(current, current.ordered);
+            return index;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Register a callback for every change of an entity, e.g. to invalidate a
+     * dependent cache. Called with the write lock held, so it must be quick.
+     */
+    public void addListener(ChangeListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Lock serializing writers of this store. Reentrant, so callers may hold it
+     * around {@link #put}, {@link #remove} and {@link #update}.
+     */
+    public ReentrantLock writeLock() {
+        return writeLock;
+    }
+
+    public Optional<T> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(contents.byId.get(id));
+    }
+
+    /**
+     * Read-only, weakly consistent view of all entities in id order.
+     */
+    public Collection<T> values() {
+        return Collections.unmodifiableCollection(contents.ordered.values());
+    }
+
+    public int size() {
+        return contents.byId.size();
+    }
+
+    /**
+     * Keyset page over all entities in id order, read straight from the id index
+     * without copying the rest of the store.
+     *
+     * @param after only entities with a larger id; null for the first page
+     * @param limit maximum number of entities, at least 1
+     */
+    public Page<T> page(Long after, int limit) {
+        return page(contents.ordered, after, limit);
+    }
+
+    private Page<T> page(NavigableMap<Long, T> byId, Long after, int limit) {
+        NavigableMap<Long, T> ordered = after == null ? byId : byId.tailMap(after, false);
+        List<T> items = new ArrayList<>(Math.min(limit, 64));
+        for (T entity : ordered.values()) {
+            if (items.size() == limit) {
+                return new Page<>(items, idOf.apply(items.get(limit - 1)));
+            }
+            items.add(entity);
+        }
+        return new Page<>(items, null);
+    }
+
+    /**
+     * Insert or replace an entity, keeping every index consistent.
+     *
+     * @return the entity previously stored under the same id, or null
+     */
+    public T put(T entity) {
+        Long id = idOf.apply(entity);
+        writeLock.lock();
+        try {
+            Contents<T> current = contents;
+            T previous = current.byId.put(id, entity);
+            current.ordered.put(id, entity);
+            if (previous != null) {
+                unindex(current, id, previous);
+            }
+            for (UniqueIndex<T> index : uniqueIndexes) {
+                index.add(current, id, entity);
+            }
+            for (MultiIndex<T> index : multiIndexes) {
+                index.add(current, id, entity);
+            }
+            notifyListeners(previous, entity);
+            return previous;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the removed entity, or null if none was stored under that id
+     */
+    public T remove(Long id) {
+        if (id == null) {
+            return null;
+        }
+        writeLock.lock();
+        try {
+            Contents<T> current = contents;
+            T previous = current.byId.remove(id);
+            if (previous != null) {
+                current.ordered.remove(id);
+                unindex(current, id, previous);
+                notifyListeners(previous, null);
+            }
+            return previous;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Atomic read-modify-write of one entity. The function should return a new
+     * instance rather than mutate the stored one, which readers may be using.
+     *
+     * @return the stored result, or empty if no entity has that id
+     */
+    public Optional<T> update(Long id, UnaryOperator<T> change) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        writeLock.lock();
+        try {
+            T current = contents.byId.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            T updated = change.apply(current);
+            put(updated);
+            return Optional.of(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the whole content, e.g. after loading a snapshot.
+     */
+    public void load(Collection<T> entities) {
+        load(entities::forEach);
+    }
+
+    /**
+     * Replace the whole content with entities produced one at a time, e.g. by a
+     * streaming parser. Indexes are built in one pass once the source is drained
+     * instead of copying a bucket per insert, and the result is published at once.
+     * If the source fails, the current content is kept. A later entity with the
+     * same id replaces an earlier one. Listeners are not notified.
+     */
+    public <E extends Exception> void load(Source<T, E> source) throws E {
+        writeLock.lock();
+        try {
+            Contents<T> next = newContents();
+            source.forEach(entity -> {
+                Long id = idOf.apply(entity);
+                next.byId.put(id, entity);
+                next.ordered.put(id, entity);
+            });
+            publish(next);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the whole content with a new dataset, e.g. a data file edited out
+     * of band, and publish it in one step. Stored entities with the same content
+     * as their replacement are kept, so unchanged entities keep their identity
+     * and only real changes are reported to listeners.
+     *
+     * @param sameContent whether a stored entity and its replacement are equal in every field
+     */
+    public Diff replaceAll(Collection<T> entities, BiPredicate<T, T> sameContent) {
+        writeLock.lock();
+        try {
+            Contents<T> current = contents;
+            Contents<T> next = newContents();
+            List<T> before = new ArrayList<>();
+            List<T> after = new ArrayList<>();
+            Diff diff = new Diff();
+            for (T entity : entities) {
+                Long id = idOf.apply(entity);
+                T live = current.byId.get(id);
+                T kept = live != null && sameContent.test(live, entity) ? live : entity;
+                next.byId.put(id, kept);
+                next.ordered.put(id, kept);
+                if (kept == live) {
+                    diff.unchanged++;
+                } else {
+                    before.add(live);
+                    after.add(kept);
+                }
+            }
+            for (Map.Entry<Long, T> entry : current.ordered.entrySet()) {
+                if (!next.byId.containsKey(entry.getKey())) {
+                    before.add(entry.getValue());
+                    after.add(null);
+                }
+            }
+            publish(next);
+            for (int i = 0; i < before.size(); i++) {
+                if (before.get(i) == null) {
+                    diff.added++;
+                } else if (after.get(i) == null) {
+                    diff.removed++;
+                } else {
+                    diff.updated++;
+                }
+                notifyListeners(before.get(i), after.get(i));
+            }
+            return diff;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Contents<T> newContents() {
+        Contents<T> next = new Contents<>();
+        uniqueIndexes.forEach(index -> next.unique.add(new UniqueEntries<>()));
+        multiIndexes.forEach(index -> next.multi.add(new MultiEntries<>()));
+        return next;
+    }
+
+    private void publish(Contents<T> next) {
+        for (UniqueIndex<T> index : uniqueIndexes) {
+            next.ordered.forEach((id, entity) -> index.add(next, id, entity));
+        }
+        for (MultiIndex<T> index : multiIndexes) {
+            index.build(next, next.ordered);
+        }
+        contents = next;
+    }
+
+    private void unindex(Contents<T> current, Long id, T entity) {
+        for (UniqueIndex<T> index : uniqueIndexes) {
+            index.remove(current, id, entity);
+        }
+        for (MultiIndex<T> index : multiIndexes) {
+            index.remove(current, id, entity);
+        }
+    }
+
+    private void notifyListeners(T before, T after) {
+        for (ChangeListener<T> listener : listeners) {
+            try {
+                listener.changed(before, after);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    static Object normalize(Object key) {
+        if (key instanceof String) {
+            return ((String) key).toLowerCase(Locale.ROOT);
+        }
+        return key;
+    }
+
+    /**
+     * Producer of entities for {@link #load(Source)}.
+     */
+    @FunctionalInterface
+    public interface Source<T, E extends Exception> {
+        void forEach(Consumer<T> sink) throws E;
+    }
+
+    /**
+     * Receives every change: before is null for an insert, after is null for a removal.
+     */
+    @FunctionalInterface
+    public interface ChangeListener<T> {
+        void changed(T before, T after);
+    }
+
+    /**
+     * Counts of what {@link #replaceAll} changed.
+     */
+    public static class Diff {
+        int added;
+        int updated;
+        int removed;
+        int unchanged;
+
+        public int getAdded() {
+            return added;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        @Override
+        public String toString() {
+            return added + " added, " + updated + " updated, " + removed + " removed, " + unchanged + " unchanged";
+        }
+    }
+
+    /**
+     * One page of a keyset-paginated listing.
+     */
+    public static class Page<T> {
+        private final List<T> items;
+        private final Long next;
+
+        Page(List<T> items, Long next) {
+            this.items = Collections.unmodifiableList(items);
+            this.next = next;
+        }
+
+        public List<T> getItems() {
+            return items;
+        }
+
+        /**
+         * @return the id to pass as after for the following page, or null if this is the last one
+         */
+        public Long getNext() {
+            return next;
+        }
+    }
+
+    /**
+     * One published version of the store: the entities and every index over them.
+     */
+    private static final class Contents<T> {
+        final ConcurrentHashMap<Long, T> byId = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<Long, T> ordered = new ConcurrentSkipListMap<>();
+        final List<UniqueEntries<T>> unique = new CopyOnWriteArrayList<>();
+        final List<MultiEntries<T>> multi = new CopyOnWriteArrayList<>();
+    }
+
+    private static final class UniqueEntries<T> {
+        final Map<Object, T> entries = new ConcurrentHashMap<>();
+        // Key each entity was indexed under; entities may be mutated in place before being saved again
+        final Map<Long, Object> indexedKeys = new ConcurrentHashMap<>();
+        // Entities sharing a key with a lower id (duplicates in legacy data), by id; writers only
+        final Map<Object, TreeMap<Long, T>> shadowed = new HashMap<>();
+    }
+
+    private static final class MultiEntries<T> {
+        final Map<Object, ConcurrentSkipListMap<Long, T>> buckets = new ConcurrentHashMap<>();
+        final Map<Long, Object> indexedKeys = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Hash index on a property expected to be unique (username, email, city name).
+     * If several entities share a key, the one with the lowest id is found; once
+     * it is removed or re-keyed, the next lowest takes its place.
+     */
+    public static class UniqueIndex<T> {
+
+        private final IndexedStore<T> store;
+        private final int slot;
+        private final Function<T, ?> keyOf;
+
+        UniqueIndex(IndexedStore<T> store, int slot, Function<T, ?> keyOf) {
+            this.store = store;
+            this.slot = slot;
+            this.keyOf = keyOf;
+        }
+
+        public Optional<T> get(Object key) {
+            if (key == null) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(store.contents.unique.get(slot).entries.get(normalize(key)));
+        }
+
+        void add(Contents<T> contents, Long id, T entity) {
+            Object key = normalize(keyOf.apply(entity));
+            if (key == null) {
+                return;
+            }
+            UniqueEntries<T> data = contents.unique.get(slot);
+            data.indexedKeys.put(id, key);
+            T existing = data.entries.putIfAbsent(key, entity);
+            if (existing == null) {
+                return;
+            }
+            // The data holds duplicates: the lowest id is found, as the old linear scan did, the others wait
+            TreeMap<Long, T> waiting = data.shadowed.computeIfAbsent(key, k -> new TreeMap<>());
+            Long existingId = store.idOf.apply(existing);
+            if (existingId < id) {
+                waiting.put(id, entity);
+            } else {
+                waiting.put(existingId, existing);
+                data.entries.put(key, entity);
+            }
+        }
+
+        void remove(Contents<T> contents, Long id, T entity) {
+            UniqueEntries<T> data = contents.unique.get(slot);
+            Object key = data.indexedKeys.remove(id);
+            if (key == null) {
+                return;
+            }
+            TreeMap<Long, T> waiting = data.shadowed.get(key);
+            T found = data.entries.get(key);
+            if (found == null || !store.idOf.apply(found).equals(id)) {
+                if (waiting != null && waiting.remove(id) != null && waiting.isEmpty()) {
+                    data.shadowed.remove(key);
+                }
+            } else if (waiting == null) {
+                data.entries.remove(key);
+            } else {
+                // The next lowest id takes over the key
+                data.entries.put(key, waiting.pollFirstEntry().getValue());
+                if (waiting.isEmpty()) {
+                    data.shadowed.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash index from a property value to every entity carrying it (city, userId, status, type).
+     * Buckets are kept in id order.
+     */
+    public static class MultiIndex<T> {
+
+        private final IndexedStore<T> store;
+        private final int slot;
+        private final Function<T, ?> keyOf;
+
+        MultiIndex(IndexedStore<T> store, int slot, Function<T, ?> keyOf) {
+            this.store = store;
+            this.slot = slot;
+            this.keyOf = keyOf;
+        }
+
+        /**
+         * @return a read-only, weakly consistent view of matching entities in id order, empty if none
+         */
+        public Collection<T> get(Object key) {
+            NavigableMap<Long, T> bucket = bucket(key);
+            return bucket == null ? Collections.emptyList() : Collections.unmodifiableCollection(bucket.values());
+        }
+
+        /**
+         * Keyset page of the entities matching key, read straight from their bucket.
+         *
+         * @param after only entities with a larger id; null for the first page
+         * @param limit maximum number of entities, at least 1
+         */
+        public Page<T> page(Object key, Long after, int limit) {
+            NavigableMap<Long, T> bucket = bucket(key);
+            return bucket == null ? new Page<>(Collections.emptyList(), null) : store.page(bucket, after, limit);
+        }
+
+        private NavigableMap<Long, T> bucket(Object key) {
+            return key == null ? null : store.contents.multi.get(slot).buckets.get(normalize(key));
+        }
+
+        void add(Contents<T> contents, Long id, T entity) {
+            Object key = normalize(keyOf.apply(entity));
+            if (key == null) {
+                return;
+            }
+            MultiEntries<T> data = contents.multi.get(slot);
+            data.indexedKeys.put(id, key);
+            data.buckets.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>()).put(id, entity);
+        }
+
+        void remove(Contents<T> contents, Long id, T entity) {
+            MultiEntries<T> data = contents.multi.get(slot);
+            Object key = data.indexedKeys.remove(id);
+            ConcurrentSkipListMap<Long, T> bucket = key == null ? null : data.buckets.get(key);
+            if (bucket == null) {
+                return;
+            }
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                data.buckets.remove(key);
+            }
+        }
+
+        /**
+         * Index all entities into an empty index at once; entries must be in id order.
+         */
+        void build(Contents<T> contents, Map<Long, T> entries) {
+            MultiEntries<T> data = contents.multi.get(slot);
+            entries.forEach((id, entity) -> {
+                Object key = normalize(keyOf.apply(entity));
+                if (key != null) {
+                    data.indexedKeys.put(id, key);
+                    data.buckets.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>()).put(id, entity);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.model.Activities;
+import com.travelbuddy.model.Cities;
+import com.travelbuddy.model.Trips;
+import com.travelbuddy.model.Users;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+import javax.xml.transform.Source;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JAXB infrastructure shared by the XML repositories.
+ * One context covers all wrapper classes and is built once, on first use.
+ * Marshallers and unmarshallers are not thread-safe but are expensive to
+ * create, so they are pooled and reused across loads, saves and journal
+ * appends instead of being created per call.
+ */
+public final class JaxbSupport {
+
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final Pool<Marshaller> DOCUMENT_MARSHALLERS = new Pool<>();
+    private static final Pool<Marshaller> FRAGMENT_MARSHALLERS = new Pool<>();
+    private static final Pool<Unmarshaller> UNMARSHALLERS = new Pool<>();
+
+    private static volatile long contextBuildNanos;
+
+    private JaxbSupport() {
+    }
+
+    private static final class Holder {
+        static final JAXBContext CONTEXT = create();
+
+        private static JAXBContext create() {
+            long start = System.nanoTime();
+            try {
+                return JAXBContext.newInstance(Activities.class, Trips.class, Users.class, Cities.class);
+            } catch (JAXBException e) {
+                throw new IllegalStateException("Could not create the JAXB context", e);
+            } finally {
+                contextBuildNanos = System.nanoTime() - start;
+            }
+        }
+    }
+
+    public static JAXBContext getContext() {
+        return Holder.CONTEXT;
+    }
+
+    /**
+     * Time spent building the shared context, 0 until it has been built.
+     */
+    public static double getContextBuildMillis() {
+        return contextBuildNanos / 1_000_000.0;
+    }
+
+    /**
+     * Marshal a complete, indented document (snapshots).
+     */
+    public static void marshal(Object value, OutputStream out) throws JAXBException {
+        Marshaller marshaller = DOCUMENT_MARSHALLERS.poll();
+        if (marshaller == null) {
+            marshaller = getContext().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        }
+        marshaller.marshal(value, out);
+        DOCUMENT_MARSHALLERS.offer(marshaller);
+    }
+
+    /**
+     * Marshal an element without XML declaration (journal records).
+     */
+    public static void marshalFragment(Object value, OutputStream out) throws JAXBException {
+        Marshaller marshaller = FRAGMENT_MARSHALLERS.poll();
+        if (marshaller == null) {
+            marshaller = getContext().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        }
+        marshaller.marshal(value, out);
+        FRAGMENT_MARSHALLERS.offer(marshaller);
+    }
+
+    public static <T> T unmarshal(Source source, Class<T> type) throws JAXBException {
+        Unmarshaller unmarshaller = borrowUnmarshaller();
+        T value = unmarshaller.unmarshal(source, type).getValue();
+        releaseUnmarshaller(unmarshaller);
+        return value;
+    }
+
+    /**
+     * For callers that configure the unmarshaller (e.g. a listener); hand it back
+     * with {@link #releaseUnmarshaller} when done.
+     */
+    public static Unmarshaller borrowUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller = UNMARSHALLERS.poll();
+        return unmarshaller != null ? unmarshaller : getContext().createUnmarshaller();
+    }
+
+    public static void releaseUnmarshaller(Unmarshaller unmarshaller) {
+        unmarshaller.setListener(null);
+        UNMARSHALLERS.offer(unmarshaller);
+    }
+
+    /**
+     * Bounded free list; an instance that fails mid-use is simply not returned.
+     */
+    private static final class Pool<T> {
+
+        private final Queue<T> free = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        T poll() {
+            T item = free.poll();
+            if (item != null) {
+                size.decrementAndGet();
+            }
+            return item;
+        }
+
+        void offer(T item) {
+            if (size.incrementAndGet() <= POOL_SIZE) {
+                free.offer(item);
+            } else {
+                size.decrementAndGet();
+            }
+        }
+    }
+}
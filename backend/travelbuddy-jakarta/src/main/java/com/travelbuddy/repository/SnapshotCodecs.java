@@ -0,0 +1,164 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.City;
+import com.travelbuddy.model.Trip;
+import com.travelbuddy.model.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary snapshot codecs of the four repository entities.
+ * New fields go at the end of write() and are read only when
+ * in.getVersion() is recent enough.
+ */
+public final class SnapshotCodecs {
+
+    private SnapshotCodecs() {
+    }
+
+    public static final BinarySnapshot.Codec<Activity> ACTIVITY = new BinarySnapshot.Codec<>() {
+        @Override
+        public String kind() {
+            return "activities";
+        }
+
+        @Override
+        public void write(Activity activity, BinarySnapshot.Output out) throws IOException {
+            out.writeNullableLong(activity.getId());
+            out.writeString(activity.getName());
+            out.writeSymbol(activity.getCity());
+            out.writeSymbol(activity.getType());
+            out.writeInt(activity.getDuration());
+            out.writeDouble(activity.getCost());
+            out.writeDouble(activity.getRating());
+            out.writeString(activity.getDescription());
+            out.writeSymbol(activity.getTimeSlot());
+            out.writeString(activity.getImage());
+        }
+
+        @Override
+        public Activity read(BinarySnapshot.Input in) {
+            Activity activity = new Activity();
+            activity.setId(in.readNullableLong());
+            activity.setName(in.readString());
+            activity.setCity(in.readSymbol());
+            activity.setType(in.readSymbol());
+            activity.setDuration(in.readInt());
+            activity.setCost(in.readDouble());
+            activity.setRating(in.readDouble());
+            activity.setDescription(in.readString());
+            activity.setTimeSlot(in.readSymbol());
+            activity.setImage(in.readString());
+            return activity;
+        }
+    };
+
+    public static final BinarySnapshot.Codec<Trip> TRIP = new BinarySnapshot.Codec<>() {
+        @Override
+        public String kind() {
+            return "trips";
+        }
+
+        @Override
+        public void write(Trip trip, BinarySnapshot.Output out) throws IOException {
+            out.writeNullableLong(trip.getId());
+            out.writeString(trip.getName());
+            out.writeNullableLong(trip.getUserId());
+            out.writeSymbol(trip.getCity());
+            out.writeString(trip.getStartDate());
+            out.writeString(trip.getEndDate());
+            out.writeInt(trip.getNumberOfDays());
+            out.writeDouble(trip.getBudget());
+            List<Long> activityIds = trip.getActivityIds();
+            out.writeInt(activityIds == null ? 0 : activityIds.size());
+            if (activityIds != null) {
+                for (Long activityId : activityIds) {
+                    out.writeNullableLong(activityId);
+                }
+            }
+            out.writeSymbol(trip.getStatus());
+            out.writeString(trip.getCreatedAt());
+        }
+
+        @Override
+        public Trip read(BinarySnapshot.Input in) {
+            Trip trip = new Trip();
+            trip.setId(in.readNullableLong());
+            trip.setName(in.readString());
+            trip.setUserId(in.readNullableLong());
+            trip.setCity(in.readSymbol());
+            trip.setStartDate(in.readString());
+            trip.setEndDate(in.readString());
+            trip.setNumberOfDays(in.readInt());
+            trip.setBudget(in.readDouble());
+            int count = in.readInt();
+            List<Long> activityIds = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                activityIds.add(in.readNullableLong());
+            }
+            trip.setActivityIds(activityIds);
+            trip.setStatus(in.readSymbol());
+            trip.setCreatedAt(in.readString());
+            return trip;
+        }
+    };
+
+    public static final BinarySnapshot.Codec<User> USER = new BinarySnapshot.Codec<>() {
+        @Override
+        public String kind() {
+            return "users";
+        }
+
+        @Override
+        public void write(User user, BinarySnapshot.Output out) throws IOException {
+            out.writeNullableLong(user.getId());
+            out.writeString(user.getUsername());
+            out.writeString(user.getEmail());
+            out.writeString(user.getPassword());
+            out.writeString(user.getFullName());
+            out.writeString(user.getCreatedAt());
+        }
+
+        @Override
+        public User read(BinarySnapshot.Input in) {
+            User user = new User();
+            user.setId(in.readNullableLong());
+            user.setUsername(in.readString());
+            user.setEmail(in.readString());
+            user.setPassword(in.readString());
+            user.setFullName(in.readString());
+            user.setCreatedAt(in.readString());
+            return user;
+        }
+    };
+
+    public static final BinarySnapshot.Codec<City> CITY = new BinarySnapshot.Codec<>() {
+        @Override
+        public String kind() {
+            return "cities";
+        }
+
+        @Override
+        public void write(City city, BinarySnapshot.Output out) throws IOException {
+            out.writeNullableLong(city.getId());
+            out.writeString(city.getName());
+            out.writeSymbol(city.getCountry());
+            out.writeString(city.getDescription());
+            out.writeString(city.getImage());
+        }
+
+        @Override
+        public City read(BinarySnapshot.Input in) {
+            City city = new City();
+            city.setId(in.readNullableLong());
+            city.setName(in.readString());
+            city.setCountry(in.readSymbol());
+            city.setDescription(in.readString());
+            city.setImage(in.readString());
+            return city;
+        }
+    };
+}
@@ -0,0 +1,113 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.model.Activities;
+import com.travelbuddy.model.Cities;
+import com.travelbuddy.model.Trips;
+import com.travelbuddy.model.Users;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Offline converter between XML and binary snapshots.
+ *
+ * <pre>
+ * java -cp ... com.travelbuddy.repository.SnapshotConverter activities.xml activities.bin
+ * java -cp ... com.travelbuddy.repository.SnapshotConverter activities.bin activities.xml
+ * </pre>
+ * The direction follows the input's extension; the entity kind is taken from the
+ * file name (activities, trips, users, cities) unless given as a third argument.
+ */
+public final class SnapshotConverter {
+
+    private SnapshotConverter() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: SnapshotConverter <input.xml|input.bin> <output> [activities|trips|users|cities]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        String kind = args.length == 3 ? args[2] : input.getFileName().toString().split("\\.")[0];
+        Format<?, ?> format = formatOf(kind);
+        if (format == null) {
+            System.err.println("Unknown kind '" + kind + "'");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        int count = input.getFileName().toString().endsWith(BinarySnapshot.FILE_SUFFIX)
+                ? format.binaryToXml(input, output)
+                : format.xmlToBinary(input, output);
+        System.out.printf("Converted %d %s from %s to %s in %d ms%n", count, kind, input, output,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static Format<?, ?> formatOf(String kind) {
+        switch (kind) {
+            case "activities":
+                return new Format<>(Activities.class, SnapshotCodecs.ACTIVITY, Activities::new,
+                        Activities::getNextId, Activities::setNextId, Activities::setActivities);
+            case "trips":
+                return new Format<>(Trips.class, SnapshotCodecs.TRIP, Trips::new,
+                        Trips::getNextId, Trips::setNextId, Trips::setTrips);
+            case "users":
+                return new Format<>(Users.class, SnapshotCodecs.USER, Users::new,
+                        Users::getNextId, Users::setNextId, Users::setUsers);
+            case "cities":
+                return new Format<>(Cities.class, SnapshotCodecs.CITY, Cities::new,
+                        Cities::getNextId, Cities::setNextId, Cities::setCities);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * How one wrapper type maps to its binary codec.
+     */
+    private static final class Format<W, T> {
+
+        private final Class<W> wrapperType;
+        private final BinarySnapshot.Codec<T> codec;
+        private final Function<List<T>, W> newWrapper;
+        private final Function<W, Long> nextIdOf;
+        private final BiConsumer<W, Long> setNextId;
+        private final BiConsumer<W, List<T>> setEntities;
+
+        Format(Class<W> wrapperType, BinarySnapshot.Codec<T> codec, Function<List<T>, W> newWrapper,
+                Function<W, Long> nextIdOf, BiConsumer<W, Long> setNextId, BiConsumer<W, List<T>> setEntities) {
+            this.wrapperType = wrapperType;
+            this.codec = codec;
+            this.newWrapper = newWrapper;
+            this.nextIdOf = nextIdOf;
+            this.setNextId = setNextId;
+            this.setEntities = setEntities;
+        }
+
+        int xmlToBinary(Path input, Path output) throws Exception {
+            List<T> entities = new ArrayList<>();
+            W wrapper;
+            try (InputStream in = Files.newInputStream(input)) {
+                wrapper = StreamingXmlLoader.load(in, wrapperType, setEntities, entities::add);
+            }
+            BinarySnapshot.write(output, codec, entities, nextIdOf.apply(wrapper), FsyncPolicy.fromConfig());
+            return entities.size();
+        }
+
+        int binaryToXml(Path input, Path output) throws Exception {
+            List<T> entities = new ArrayList<>();
+            Long nextId = BinarySnapshot.read(input, codec, entities::add);
+            W wrapper = newWrapper.apply(entities);
+            setNextId.accept(wrapper, nextId);
+            AtomicFileWriter.write(output, out -> JaxbSupport.marshal(wrapper, out), FsyncPolicy.fromConfig());
+            return entities.size();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.travelbuddy.repository;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader for the repositories' XML snapshots.
+ * The document is pulled through a StAX reader in a single unmarshal pass, but
+ * the wrapper's entity list (Activities.activities, ...) is replaced by a list
+ * that hands each entity to a sink as soon as it has been read instead of
+ * keeping it. Nothing but the entities themselves stays in memory, and the store
+ * can index them while the rest of the file is still being parsed.
+ *
+ * This is noticeably faster than unmarshalling each element separately from
+ * the StAX reader, which sets up a new unmarshalling context per entity.
+ */
+public final class StreamingXmlLoader {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private StreamingXmlLoader() {
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Read a wrapper document, passing each entity to sink in document order.
+     *
+     * @param setEntities the wrapper's list setter, e.g. Activities::setActivities
+     * @return the wrapper with its attributes (nextId) but an empty entity list
+     */
+    public static <W, T> W load(InputStream in, Class<W> wrapperType,
+            BiConsumer<W, List<T>> setEntities, Consumer<T> sink) throws JAXBException {
+        Unmarshaller unmarshaller = JaxbSupport.borrowUnmarshaller();
+        unmarshaller.setListener(new Unmarshaller.Listener() {
+            @Override
+            public void beforeUnmarshal(Object target, Object parent) {
+                if (wrapperType.isInstance(target)) {
+                    setEntities.accept(wrapperType.cast(target), new ForwardingList<>(sink));
+                }
+            }
+        });
+        XMLStreamReader reader = null;
+        try {
+            synchronized (FACTORY) {
+                reader = FACTORY.createXMLStreamReader(in);
+            }
+            W wrapper = unmarshaller.unmarshal(reader, wrapperType).getValue();
+            setEntities.accept(wrapper, new ArrayList<>());
+            JaxbSupport.releaseUnmarshaller(unmarshaller);
+            return wrapper;
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Malformed " + wrapperType.getSimpleName() + " data: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * List that forwards added elements instead of storing them; always empty.
+     */
+    private static class ForwardingList<T> extends AbstractList<T> {
+
+        private final Consumer<T> sink;
+
+        ForwardingList(Consumer<T> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public boolean add(T element) {
+            sink.accept(element);
+            return true;
+        }
+
+        @Override
+        public T get(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+}
@@ -2,28 +2,22 @@ package com.travelbuddy.repository;
 
 import com.travelbuddy.model.Trips;
 import com.travelbuddy.model.Trip;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.annotation.PostConstruct;
 
-import java.io.InputStream;
-import java.io.FileOutputStream;
-import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 
 /**
  * Repository for Trip entities using XML as storage.
  */
 @ApplicationScoped
-public class TripRepository {
+public class TripRepository extends XmlRepository<Trip, Trips> {
 
     private static TripRepository instance;
 
@@ -35,102 +29,91 @@ public class TripRepository {
         return instance;
     }
 
-    private static final String XML_FILE = "data/trips.xml";
-    private Trips trips;
-    private JAXBContext context;
+    private final IndexedStore.MultiIndex<Trip> byUserId = store.addMultiIndex(Trip::getUserId);
+    private final IndexedStore.MultiIndex<Trip> byCity = store.addMultiIndex(Trip::getCity);
+    private final IndexedStore.MultiIndex<Trip> byStatus = store.addMultiIndex(Trip::getStatus);
 
-    public void init() {
-        try {
-            context = JAXBContext.newInstance(Trips.class);
-            loadFromXml();
-        } catch (JAXBException e) {
-            e.printStackTrace();
-            trips = new Trips();
-        }
+    public TripRepository() {
+        super("trips", Trip.class, Trips.class, SnapshotCodecs.TRIP, Trip::getId);
     }
 
-    private void loadFromXml() {
-        try {
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            InputStream is = getClass().getClassLoader().getResourceAsStream(XML_FILE);
-            if (is != null) {
-                trips = (Trips) unmarshaller.unmarshal(is);
-            } else {
-                trips = new Trips();
-            }
-        } catch (JAXBException e) {
-            e.printStackTrace();
-            trips = new Trips();
-        }
+    @Override
+    protected Trips wrap(List<Trip> items, Long nextId) {
+        Trips trips = new Trips(items);
+        trips.setNextId(nextId);
+        return trips;
     }
 
-    private void saveToXml() {
-        try {
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+    @Override
+    protected void setItems(Trips trips, List<Trip> items) {
+        trips.setTrips(items);
+    }
 
-            java.net.URL resource = getClass().getClassLoader().getResource(XML_FILE);
-            if (resource != null) {
-                File file = new File(resource.toURI());
-                marshaller.marshal(trips, new FileOutputStream(file));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    @Override
+    protected Long getNextId(Trips trips) {
+        return trips.getNextId();
     }
 
-    public List<Trip> findAll() {
-        if (trips == null || trips.getTrips() == null) {
-            return new ArrayList<>();
+    @Override
+    protected void prepareNew(Trip trip, Long id) {
+        trip.setId(id);
+        trip.setCreatedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        if (trip.getStatus() == null) {
+            trip.setStatus("planned");
         }
-        return new ArrayList<>(trips.getTrips());
     }
 
-    public Optional<Trip> findById(Long id) {
-        return findAll().stream()
-                .filter(t -> t.getId().equals(id))
-                .findFirst();
+    /**
+     * @return a copy in id order
+     */
+    public List<Trip> findByUserId(Long userId) {
+        return new ArrayList<>(byUserId.get(userId));
     }
 
-    public List<Trip> findByUserId(Long userId) {
-        return findAll().stream()
-                .filter(t -> t.getUserId().equals(userId))
-                .collect(Collectors.toList());
+    public IndexedStore.Page<Trip> findPageByUserId(Long userId, Long after, int limit) {
+        return byUserId.page(userId, after, limit);
     }
 
+    /**
+     * @return a copy in id order
+     */
     public List<Trip> findByCity(String city) {
-        return findAll().stream()
-                .filter(t -> t.getCity().equalsIgnoreCase(city))
-                .collect(Collectors.toList());
+        return new ArrayList<>(byCity.get(city));
+    }
+
+    public IndexedStore.Page<Trip> findPageByCity(String city, Long after, int limit) {
+        return byCity.page(city, after, limit);
     }
 
+    /**
+     * @return a copy in id order
+     */
     public List<Trip> findByStatus(String status) {
-        return findAll().stream()
-                .filter(t -> t.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+        return new ArrayList<>(byStatus.get(status));
     }
 
-    public Trip save(Trip trip) {
-        if (trip.getId() == null) {
-            Long maxId = findAll().stream()
-                    .mapToLong(Trip::getId)
-                    .max()
-                    .orElse(0L);
-            trip.setId(maxId + 1);
-            trip.setCreatedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            if (trip.getStatus() == null) {
-                trip.setStatus("planned");
+    /**
+     * Atomic read-modify-write of a stored trip, so concurrent updates to the
+     * same trip (e.g. adding activities) cannot overwrite each other.
+     *
+     * @param change receives the current trip and returns the replacement; it
+     *               should work on a copy since readers may hold the current one
+     */
+    public Optional<Trip> update(Long id, UnaryOperator<Trip> change) {
+        Optional<Trip> updated;
+        CompletableFuture<Void> durable = null;
+        store.writeLock().lock();
+        try {
+            updated = store.update(id, change);
+            if (updated.isPresent()) {
+                durable = flusher.save(id, updated.get());
             }
-        } else {
-            trips.getTrips().removeIf(t -> t.getId().equals(trip.getId()));
+        } finally {
+            store.writeLock().unlock();
         }
-        trips.addTrip(trip);
-        saveToXml();
-        return trip;
-    }
-
-    public void deleteById(Long id) {
-        trips.getTrips().removeIf(t -> t.getId().equals(id));
-        saveToXml();
+        if (durable != null) {
+            flusher.awaitDurable(durable);
+        }
+        return updated;
     }
 }
@@ -2,27 +2,21 @@ package com.travelbuddy.repository;
 
 import com.travelbuddy.model.Users;
 import com.travelbuddy.model.User;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.annotation.PostConstruct;
 
-import java.io.InputStream;
-import java.io.FileOutputStream;
-import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 
 /**
  * Repository for User entities using XML as storage.
  */
 @ApplicationScoped
-public class UserRepository {
+public class UserRepository extends XmlRepository<User, Users> {
 
     private static UserRepository instance;
 
@@ -34,94 +28,102 @@ public class UserRepository {
         return instance;
     }
 
-    private static final String XML_FILE = "data/users.xml";
-    private Users users;
-    private JAXBContext context;
+    private final IndexedStore.UniqueIndex<User> byUsername = store.addUniqueIndex(User::getUsername);
+    private final IndexedStore.UniqueIndex<User> byEmail = store.addUniqueIndex(User::getEmail);
 
-    public void init() {
-        try {
-            context = JAXBContext.newInstance(Users.class);
-            loadFromXml();
-        } catch (JAXBException e) {
-            e.printStackTrace();
-            users = new Users();
-        }
+    public UserRepository() {
+        super("users", User.class, Users.class, SnapshotCodecs.USER, User::getId);
     }
 
-    private void loadFromXml() {
-        try {
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            InputStream is = getClass().getClassLoader().getResourceAsStream(XML_FILE);
-            if (is != null) {
-                users = (Users) unmarshaller.unmarshal(is);
-            } else {
-                users = new Users();
-            }
-        } catch (JAXBException e) {
-            e.printStackTrace();
-            users = new Users();
-        }
+    @Override
+    protected Users wrap(List<User> items, Long nextId) {
+        Users users = new Users(items);
+        users.setNextId(nextId);
+        return users;
     }
 
-    private void saveToXml() {
-        try {
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-
-            java.net.URL resource = getClass().getClassLoader().getResource(XML_FILE);
-            if (resource != null) {
-                File file = new File(resource.toURI());
-                marshaller.marshal(users, new FileOutputStream(file));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    @Override
+    protected void setItems(Users users, List<User> items) {
+        users.setUsers(items);
     }
 
-    public List<User> findAll() {
-        if (users == null || users.getUsers() == null) {
-            return new ArrayList<>();
-        }
-        return new ArrayList<>(users.getUsers());
+    @Override
+    protected Long getNextId(Users users) {
+        return users.getNextId();
     }
 
-    public Optional<User> findById(Long id) {
-        return findAll().stream()
-                .filter(u -> u.getId().equals(id))
-                .findFirst();
+    @Override
+    protected void prepareNew(User user, Long id) {
+        user.setId(id);
+        user.setCreatedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
     }
 
     public Optional<User> findByUsername(String username) {
-        return findAll().stream()
-                .filter(u -> u.getUsername().equalsIgnoreCase(username))
-                .findFirst();
+        return byUsername.get(username);
     }
 
     public Optional<User> findByEmail(String email) {
-        return findAll().stream()
-                .filter(u -> u.getEmail().equalsIgnoreCase(email))
-                .findFirst();
+        return byEmail.get(email);
     }
 
-    public User save(User user) {
-        if (user.getId() == null) {
-            Long maxId = findAll().stream()
-                    .mapToLong(User::getId)
-                    .max()
-                    .orElse(0L);
-            user.setId(maxId + 1);
-            user.setCreatedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        } else {
-            users.getUsers().removeIf(u -> u.getId().equals(user.getId()));
+    /**
+     * Save a new user unless its username or email is taken. The check and the
+     * insert happen under the write lock, so concurrent signups with the same
+     * username or email cannot both succeed.
+     *
+     * @throws IllegalArgumentException if another user has the username or email
+     */
+    public User saveIfUnique(User user) {
+        CompletableFuture<Void> durable;
+        store.writeLock().lock();
+        try {
+            rejectTaken(user);
+            durable = put(user);
+        } finally {
+            store.writeLock().unlock();
         }
-        users.addUser(user);
-        saveToXml();
+        flusher.awaitDurable(durable);
         return user;
     }
 
-    public void deleteById(Long id) {
-        users.getUsers().removeIf(u -> u.getId().equals(id));
-        saveToXml();
+    /**
+     * Replace user id with what change makes of it, under the same uniqueness
+     * check as {@link #saveIfUnique}.
+     *
+     * @return the saved user, or empty if no user has that id
+     * @throws IllegalArgumentException if another user has the new username or email
+     */
+    public Optional<User> updateIfUnique(Long id, UnaryOperator<User> change) {
+        User updated;
+        CompletableFuture<Void> durable;
+        store.writeLock().lock();
+        try {
+            Optional<User> current = store.findById(id);
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            updated = change.apply(current.get());
+            updated.setId(id);
+            rejectTaken(updated);
+            durable = put(updated);
+        } finally {
+            store.writeLock().unlock();
+        }
+        flusher.awaitDurable(durable);
+        return Optional.of(updated);
+    }
+
+    private void rejectTaken(User user) {
+        if (isTakenByOther(byUsername.get(user.getUsername()), user)) {
+            throw new IllegalArgumentException("Username already exists");
+        }
+        if (isTakenByOther(byEmail.get(user.getEmail()), user)) {
+            throw new IllegalArgumentException("Email already exists");
+        }
+    }
+
+    private static boolean isTakenByOther(Optional<User> owner, User user) {
+        return owner.isPresent() && !owner.get().getId().equals(user.getId());
     }
 
     public boolean existsByUsername(String username) {
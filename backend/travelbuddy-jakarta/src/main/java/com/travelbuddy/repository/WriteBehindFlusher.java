@@ -0,0 +1,279 @@
+package com.travelbuddy.repository;
+
+import com.travelbuddy.config.AppConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves repository persistence off the request thread.
+ * Mutations are recorded in a pending map keyed by id, so repeated updates of the
+ * same entity between two flushes are coalesced into a single journal record.
+ * A flush writes the pending records in one batch, compacts the journal into a
+ * fresh snapshot when it has grown too large, and completes the waiters of that batch.
+ *
+ * Durability is selected with travelbuddy.persistence.durability:
+ * <ul>
+ * <li>sync (default): the caller flushes before returning, as before;</li>
+ * <li>group: callers wait for the next periodic flush, so concurrent writers share one write;</li>
+ * <li>async: callers return immediately and the flush happens in the background.</li>
+ * </ul>
+ * Group and async mode flush every travelbuddy.persistence.flushIntervalMs, or
+ * sooner once travelbuddy.persistence.maxPending mutations are waiting.
+ */
+public class WriteBehindFlusher<T> {
+
+    public enum Durability {
+        SYNC, GROUP, ASYNC;
+
+        static Durability fromConfig() {
+            String value = AppConfig.getString("travelbuddy.persistence.durability", "sync");
+            try {
+                return valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown durability '" + value + "', using sync");
+                return SYNC;
+            }
+        }
+    }
+
+    private static final Object DELETED = new Object();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "repository-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final EntityJournal<T> journal;
+    private final Runnable snapshotWriter;
+    private final Durability durability;
+    private final long intervalMillis;
+    private final int maxPending;
+
+    private final Object pendingLock = new Object();
+    private Map<Long, Object> pending = new LinkedHashMap<>();
+    private long pendingSequence = -1;
+    private CompletableFuture<Void> nextFlush = new CompletableFuture<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicLong mutations = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+
+    /**
+     * @param journal        the journal to append to, or null to rewrite the snapshot on every flush
+     * @param snapshotWriter writes the full snapshot, used for compaction
+     */
+    public WriteBehindFlusher(String name, EntityJournal<T> journal, Runnable snapshotWriter) {
+        this(name, journal, snapshotWriter, Durability.fromConfig(),
+                AppConfig.getLong("travelbuddy.persistence.flushIntervalMs", 50),
+                AppConfig.getInt("travelbuddy.persistence.maxPending", 500));
+    }
+
+    public WriteBehindFlusher(String name, EntityJournal<T> journal, Runnable snapshotWriter,
+            Durability durability, long intervalMillis, int maxPending) {
+        this.name = name;
+        this.journal = journal;
+        this.snapshotWriter = snapshotWriter;
+        this.durability = durability;
+        this.intervalMillis = intervalMillis;
+        this.maxPending = maxPending;
+        if (durability != Durability.SYNC) {
+            SCHEDULER.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush, name + "-final-flush"));
+        }
+    }
+
+    /**
+     * Record a save. Call while holding the repository write lock, then pass the
+     * result to {@link #awaitDurable} after releasing it.
+     */
+    public CompletableFuture<Void> save(Long id, T entity) {
+        return enqueue(id, entity);
+    }
+
+    public CompletableFuture<Void> delete(Long id) {
+        return enqueue(id, DELETED);
+    }
+
+    /**
+     * Record the id sequence's high-water mark (see {@link EntityJournal#appendSequence}).
+     */
+    public CompletableFuture<Void> sequence(long nextId) {
+        CompletableFuture<Void> commit;
+        synchronized (pendingLock) {
+            pendingSequence = Math.max(pendingSequence, nextId);
+            commit = nextFlush;
+        }
+        return afterEnqueue(commit, false);
+    }
+
+    private CompletableFuture<Void> enqueue(Long id, Object value) {
+        CompletableFuture<Void> commit;
+        boolean full;
+        synchronized (pendingLock) {
+            pending.put(id, value);
+            commit = nextFlush;
+            full = pending.size() >= maxPending;
+        }
+        mutations.incrementAndGet();
+        return afterEnqueue(commit, full);
+    }
+
+    private CompletableFuture<Void> afterEnqueue(CompletableFuture<Void> commit, boolean full) {
+        if (durability == Durability.SYNC) {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // Reported to the caller through the commit, by awaitDurable
+            }
+        } else if (full) {
+            SCHEDULER.execute(this::flushQuietly);
+        }
+        return commit;
+    }
+
+    /**
+     * Block until the mutation behind the given future is on disk, if the
+     * durability mode asks for it. Must not be called with the repository lock held.
+     * The mutation stays applied in memory even if writing it failed.
+     *
+     * @throws RuntimeException the failure of the flush that carried the mutation (sync and group mode)
+     */
+    public void awaitDurable(CompletableFuture<Void> commit) {
+        if (durability == Durability.ASYNC) {
+            return;
+        }
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Write everything pending now.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Object> batch;
+            long sequenceMark;
+            CompletableFuture<Void> commit;
+            synchronized (pendingLock) {
+                if (pending.isEmpty() && pendingSequence < 0) {
+                    return;
+                }
+                batch = pending;
+                sequenceMark = pendingSequence;
+                commit = nextFlush;
+                pending = new LinkedHashMap<>();
+                pendingSequence = -1;
+                nextFlush = new CompletableFuture<>();
+            }
+            long start = System.nanoTime();
+            try {
+                write(batch, sequenceMark);
+                commit.complete(null);
+            } catch (RuntimeException e) {
+                commit.completeExceptionally(e);
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                lastFlushNanos = elapsed;
+                totalFlushNanos.addAndGet(elapsed);
+                maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+                flushes.incrementAndGet();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(Map<Long, Object> batch, long sequenceMark) {
+        if (journal == null) {
+            snapshotWriter.run();
+            return;
+        }
+        try {
+            for (Map.Entry<Long, Object> entry : batch.entrySet()) {
+                if (entry.getValue() == DELETED) {
+                    journal.appendDelete(entry.getKey());
+                } else {
+                    journal.appendSave(entry.getKey(), (T) entry.getValue());
+                }
+            }
+            if (sequenceMark >= 0) {
+                journal.appendSequence(sequenceMark);
+            }
+            journal.flush();
+        } catch (RuntimeException e) {
+            // Keep a half-written batch out of the file; the whole batch fails
+            journal.discardUnflushed();
+            throw e;
+        }
+        recordsWritten.addAndGet(batch.size() + (sequenceMark >= 0 ? 1 : 0));
+        if (journal.needsCompaction()) {
+            // Anything changed after the snapshot is still pending and lands in the fresh journal
+            try {
+                snapshotWriter.run();
+            } catch (RuntimeException e) {
+                // The batch is safe in the journal; keep it and try again after the next flush
+                System.err.println("Compaction of " + name + " failed, keeping the journal: " + e.getMessage());
+                return;
+            }
+            journal.reset();
+            compactions.incrementAndGet();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Background flush of " + name + " failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    public int getQueueDepth() {
+        synchronized (pendingLock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Counters for the metrics endpoint.
+     */
+    public Map<String, Object> getMetrics() {
+        long flushCount = flushes.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("durability", durability.name().toLowerCase());
+        metrics.put("flushIntervalMs", durability == Durability.SYNC ? 0 : intervalMillis);
+        metrics.put("queueDepth", getQueueDepth());
+        metrics.put("mutations", mutations.get());
+        metrics.put("recordsWritten", recordsWritten.get());
+        metrics.put("flushes", flushCount);
+        metrics.put("compactions", compactions.get());
+        metrics.put("lastFlushMillis", lastFlushNanos / 1_000_000.0);
+        metrics.put("avgFlushMillis", flushCount == 0 ? 0.0 : totalFlushNanos.get() / 1_000_000.0 / flushCount);
+        metrics.put("maxFlushMillis", maxFlushNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+}
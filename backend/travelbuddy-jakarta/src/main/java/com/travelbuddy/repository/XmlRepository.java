@@ -0,0 +1,313 @@
+package com.travelbuddy.repository;
+
+import jakarta.xml.bind.JAXBException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Storage shared by the repositories: entities live in an {@link IndexedStore},
+ * mutations go to a journal through a {@link WriteBehindFlusher}, and compaction
+ * writes an XML snapshot (plus a binary one if enabled) to the data directory.
+ * Subclasses add their indexes and finders and say how to wrap the entities for
+ * XML and how to prepare a new entity.
+ *
+ * @param <T> the entity
+ * @param <W> the XML wrapper of the entity list, e.g. Activities
+ */
+public abstract class XmlRepository<T, W> {
+
+    private final String name;
+    private final String xmlFile;
+    private final Class<T> type;
+    private final Class<W> wrapperType;
+    private final BinarySnapshot.Codec<T> codec;
+    private final Function<T, Long> idOf;
+    protected final IndexedStore<T> store;
+    protected final IdSequence sequence = new IdSequence();
+    private final FsyncPolicy fsyncPolicy = FsyncPolicy.fromConfig();
+    private Path xmlPath;
+    private Path binaryPath;
+    private EntityJournal<T> journal;
+    protected WriteBehindFlusher<T> flusher;
+
+    /**
+     * @param name base name of the files in the data directory, e.g. "activities"
+     */
+    protected XmlRepository(String name, Class<T> type, Class<W> wrapperType, BinarySnapshot.Codec<T> codec,
+            Function<T, Long> idOf) {
+        this.name = name;
+        this.xmlFile = name + ".xml";
+        this.type = type;
+        this.wrapperType = wrapperType;
+        this.codec = codec;
+        this.idOf = idOf;
+        this.store = new IndexedStore<>(idOf);
+    }
+
+    /**
+     * Wrap entities for the XML snapshot.
+     */
+    protected abstract W wrap(List<T> items, Long nextId);
+
+    /**
+     * The wrapper's list setter, for {@link StreamingXmlLoader#load}.
+     */
+    protected abstract void setItems(W wrapper, List<T> items);
+
+    protected abstract Long getNextId(W wrapper);
+
+    /**
+     * Give a new entity its id and whatever else it gets on insert.
+     */
+    protected abstract void prepareNew(T entity, Long id);
+
+    public void init() {
+        xmlPath = DataDirectory.resolve(xmlFile);
+        binaryPath = xmlPath == null ? null : DataDirectory.resolve(name + BinarySnapshot.FILE_SUFFIX);
+        sequence.reset();
+        try {
+            store.load(this::readSnapshot);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        openJournal();
+        if (xmlPath != null) {
+            DataFileWatcher.getInstance().watch(xmlPath, this::reload);
+        }
+    }
+
+    /**
+     * Stream the newest snapshot into sink: the binary one if it is at least as
+     * recent as the XML one, else the XML.
+     */
+    private void readSnapshot(Consumer<T> sink) throws JAXBException, IOException {
+        Consumer<T> tracking = entity -> {
+            sequence.advancePast(idOf.apply(entity));
+            sink.accept(entity);
+        };
+        if (BinarySnapshot.isPreferred(binaryPath, xmlPath)) {
+            // Buffered so that a corrupt file does not leave half of it in the sink
+            List<T> loaded = new ArrayList<>();
+            try {
+                Long nextId = BinarySnapshot.read(binaryPath, codec, loaded::add);
+                loaded.forEach(tracking);
+                if (nextId != null) {
+                    sequence.advanceTo(nextId);
+                }
+                return;
+            } catch (IOException e) {
+                System.err.println("Falling back to XML: " + e.getMessage());
+            }
+        }
+        try (InputStream is = openXml()) {
+            if (is != null) {
+                W loaded = StreamingXmlLoader.load(is, wrapperType, this::setItems, tracking);
+                if (getNextId(loaded) != null) {
+                    sequence.advanceTo(getNextId(loaded));
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick up an out-of-band edit of the data file: re-read the snapshot, replay
+     * the journal on top and publish only what differs from the live data in one
+     * step. A file that does not parse is ignored and the live data kept.
+     */
+    private void reload() {
+        store.writeLock().lock();
+        try {
+            flusher.flush();
+            Map<Long, T> fresh = new LinkedHashMap<>();
+            readSnapshot(entity -> fresh.put(idOf.apply(entity), entity));
+            if (journal != null) {
+                journal.replay(entity -> {
+                    sequence.advancePast(idOf.apply(entity));
+                    fresh.put(idOf.apply(entity), entity);
+                }, fresh::remove, sequence::advanceTo);
+            }
+            IndexedStore.Diff diff = store.replaceAll(fresh.values(),
+                    (live, loaded) -> BinarySnapshot.sameContent(codec, live, loaded));
+            System.out.println("Reloaded " + xmlFile + ": " + diff);
+        } catch (JAXBException | IOException e) {
+            System.err.println("Ignoring unreadable " + xmlFile + ": " + e);
+        } finally {
+            store.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Be notified of every change to a stored entity, including reloads; see {@link IndexedStore#addListener}.
+     */
+    public void addChangeListener(IndexedStore.ChangeListener<T> listener) {
+        store.addListener(listener);
+    }
+
+    /**
+     * The snapshot in the data directory, or the bundled copy if the directory is not usable.
+     */
+    private InputStream openXml() throws IOException {
+        if (xmlPath != null && Files.exists(xmlPath)) {
+            return Files.newInputStream(xmlPath);
+        }
+        return getClass().getClassLoader().getResourceAsStream("data/" + xmlFile);
+    }
+
+    /**
+     * Write the XML snapshot, then the binary one if enabled, so the binary one is the newer.
+     *
+     * @throws IllegalStateException if it could not be written, or if the XML file
+     *                               holds an edit that has not been reloaded yet;
+     *                               the journal is then kept and the reload replays it
+     *                               on top of the edit
+     */
+    private void saveSnapshot() {
+        if (xmlPath != null && DataFileWatcher.getInstance().hasUnreadEdit(xmlPath)) {
+            throw new IllegalStateException(xmlFile + " was edited and not reloaded yet");
+        }
+        try {
+            if (xmlPath != null) {
+                List<T> items = new ArrayList<>(store.values());
+                Long nextId = sequence.peek();
+                W snapshot = wrap(items, nextId);
+                AtomicFileWriter.write(xmlPath, out -> JaxbSupport.marshal(snapshot, out), fsyncPolicy);
+                DataFileWatcher.getInstance().markOwnWrite(xmlPath);
+                if (BinarySnapshot.isEnabled() && binaryPath != null) {
+                    BinarySnapshot.write(binaryPath, codec, items, nextId, fsyncPolicy);
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot write snapshot " + xmlFile, e);
+        }
+    }
+
+    /**
+     * Open the mutation journal next to the XML file and replay it on top of the snapshot.
+     */
+    private void openJournal() {
+        Path file = xmlPath == null ? null : DataDirectory.resolve(name + ".journal");
+        if (file != null) {
+            journal = new EntityJournal<>(file, type, fsyncPolicy);
+            journal.replay(this::applySave, this::applyDelete, sequence::advanceTo);
+        }
+        flusher = new WriteBehindFlusher<>(name, journal, this::saveSnapshot);
+    }
+
+    private void applySave(T entity) {
+        sequence.advancePast(idOf.apply(entity));
+        store.put(entity);
+    }
+
+    private void applyDelete(Long id) {
+        store.remove(id);
+    }
+
+    /**
+     * Write pending mutations now, e.g. on shutdown.
+     */
+    public void flush() {
+        flusher.flush();
+    }
+
+    /**
+     * Persistence counters (queue depth, flush latency) for the metrics endpoint.
+     */
+    public Map<String, Object> getPersistenceMetrics() {
+        return flusher.getMetrics();
+    }
+
+    public List<T> findAll() {
+        return new ArrayList<>(store.values());
+    }
+
+    /**
+     * Keyset page in id order; see {@link IndexedStore#page}.
+     */
+    public IndexedStore.Page<T> findPage(Long after, int limit) {
+        return store.page(after, limit);
+    }
+
+    /**
+     * Read-only, weakly consistent view of all entities in id order, for
+     * writing them out without a copy.
+     */
+    public Collection<T> values() {
+        return store.values();
+    }
+
+    public Optional<T> findById(Long id) {
+        return store.findById(id);
+    }
+
+    public T save(T entity) {
+        flusher.awaitDurable(put(entity));
+        return entity;
+    }
+
+    /**
+     * Store entity, replacing any with the same id, and queue its journal
+     * record. Callers that check something first hold the write lock around both.
+     *
+     * @return completes once the record is durable
+     */
+    protected CompletableFuture<Void> put(T entity) {
+        store.writeLock().lock();
+        try {
+            Long id = idOf.apply(entity);
+            if (id == null) {
+                id = sequence.next();
+                prepareNew(entity, id);
+            } else {
+                sequence.advancePast(id);
+            }
+            store.put(entity);
+            return flusher.save(id, entity);
+        } finally {
+            store.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reserve a block of ids for a bulk import; the reservation is journaled so
+     * the ids are not handed out again after a restart.
+     *
+     * @return the first id of the block [first, first + count)
+     */
+    public long reserveIds(int count) {
+        long first;
+        CompletableFuture<Void> durable;
+        store.writeLock().lock();
+        try {
+            first = sequence.reserve(count);
+            durable = flusher.sequence(sequence.peek());
+        } finally {
+            store.writeLock().unlock();
+        }
+        flusher.awaitDurable(durable);
+        return first;
+    }
+
+    public void deleteById(Long id) {
+        CompletableFuture<Void> durable;
+        store.writeLock().lock();
+        try {
+            store.remove(id);
+            durable = flusher.delete(id);
+        } finally {
+            store.writeLock().unlock();
+        }
+        flusher.awaitDurable(durable);
+    }
+}
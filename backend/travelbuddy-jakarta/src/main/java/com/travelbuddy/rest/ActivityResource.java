@@ -4,8 +4,11 @@ import com.travelbuddy.model.Activity;
 import com.travelbuddy.service.ActivityService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 
 import java.util.List;
 
@@ -19,17 +22,35 @@ public class ActivityResource {
 
     private ActivityService activityService = ActivityService.getInstance();
 
+    @Context
+    private UriInfo uriInfo;
+
+    @Context
+    private HttpHeaders headers;
+
+    @GET
+    public Response getAllActivities(@QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+            @QueryParam("fields") String fields) {
+        return Pages.of(limit, EntityFields.ACTIVITY, fields, uriInfo,
+                size -> activityService.getActivitiesPage(after, size));
+    }
+
+    /**
+     * Every activity at once, streamed as a JSON array, or as NDJSON with
+     * Accept: application/x-ndjson.
+     */
     @GET
-    public Response getAllActivities() {
-        List<Activity> activities = activityService.getAllActivities();
-        return Response.ok(activities).build();
+    @Path("/export")
+    @Produces({MediaType.APPLICATION_JSON, JsonStreams.NDJSON})
+    public Response exportActivities(@QueryParam("fields") String fields) {
+        return JsonStreams.export(headers, activityService.exportActivities(), EntityFields.ACTIVITY, fields);
     }
 
     @GET
     @Path("/{id}")
-    public Response getActivityById(@PathParam("id") Long id) {
+    public Response getActivityById(@PathParam("id") Long id, @QueryParam("fields") String fields) {
         return activityService.getActivityById(id)
-                .map(activity -> Response.ok(activity).build())
+                .map(activity -> EntityFields.ACTIVITY.ok(activity, fields))
                 .orElse(Response.status(Response.Status.NOT_FOUND)
                         .entity("{\"error\": \"Activity not found\"}")
                         .build());
@@ -37,16 +58,20 @@ public class ActivityResource {
 
     @GET
     @Path("/city/{city}")
-    public Response getActivitiesByCity(@PathParam("city") String city) {
-        List<Activity> activities = activityService.getActivitiesByCity(city);
-        return Response.ok(activities).build();
+    public Response getActivitiesByCity(@PathParam("city") String city,
+            @QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+            @QueryParam("fields") String fields) {
+        return Pages.of(limit, EntityFields.ACTIVITY, fields, uriInfo,
+                size -> activityService.getActivitiesPageByCity(city, after, size));
     }
 
     @GET
     @Path("/type/{type}")
-    public Response getActivitiesByType(@PathParam("type") String type) {
-        List<Activity> activities = activityService.getActivitiesByType(type);
-        return Response.ok(activities).build();
+    public Response getActivitiesByType(@PathParam("type") String type,
+            @QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+            @QueryParam("fields") String fields) {
+        return Pages.of(limit, EntityFields.ACTIVITY, fields, uriInfo,
+                size -> activityService.getActivitiesPageByType(type, after, size));
     }
 
     @GET
@@ -1,13 +1,13 @@
 package com.travelbuddy.rest;
 
-import com.travelbuddy.model.City;
 import com.travelbuddy.repository.CityRepository;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-
-import java.util.List;
+import jakarta.ws.rs.core.UriInfo;
 
 /**
  * REST Resource for City operations.
@@ -19,17 +19,34 @@ public class CityResource {
 
     private CityRepository cityRepository = CityRepository.getInstance();
 
+    @Context
+    private UriInfo uriInfo;
+
+    @Context
+    private HttpHeaders headers;
+
+    @GET
+    public Response getAllCities(@QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+            @QueryParam("fields") String fields) {
+        return Pages.of(limit, EntityFields.CITY, fields, uriInfo, size -> cityRepository.findPage(after, size));
+    }
+
+    /**
+     * Every city at once, streamed as a JSON array, or as NDJSON with
+     * Accept: application/x-ndjson.
+     */
     @GET
-    public Response getAllCities() {
-        List<City> cities = cityRepository.findAll();
-        return Response.ok(cities).build();
+    @Path("/export")
+    @Produces({MediaType.APPLICATION_JSON, JsonStreams.NDJSON})
+    public Response exportCities(@QueryParam("fields") String fields) {
+        return JsonStreams.export(headers, cityRepository.values(), EntityFields.CITY, fields);
     }
 
     @GET
     @Path("/{id}")
-    public Response getCityById(@PathParam("id") Long id) {
+    public Response getCityById(@PathParam("id") Long id, @QueryParam("fields") String fields) {
         return cityRepository.findById(id)
-                .map(city -> Response.ok(city).build())
+                .map(city -> EntityFields.CITY.ok(city, fields))
                 .orElse(Response.status(Response.Status.NOT_FOUND)
                         .entity("{\"error\": \"City not found\"}")
                         .build());
@@ -37,9 +54,9 @@ public class CityResource {
 
     @GET
     @Path("/name/{name}")
-    public Response getCityByName(@PathParam("name") String name) {
+    public Response getCityByName(@PathParam("name") String name, @QueryParam("fields") String fields) {
         return cityRepository.findByName(name)
-                .map(city -> Response.ok(city).build())
+                .map(city -> EntityFields.CITY.ok(city, fields))
                 .orElse(Response.status(Response.Status.NOT_FOUND)
                         .entity("{\"error\": \"City not found\"}")
                         .build());
@@ -0,0 +1,203 @@
+package com.travelbuddy.rest;
+
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.City;
+import com.travelbuddy.model.Trip;
+import com.travelbuddy.model.User;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.ws.rs.core.Response;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sparse fieldsets (?fields=id,name,cost) for one entity type. Every property is
+ * registered once with a writer calling its getter, and a fields value is
+ * compiled into the writers it selects, cached per distinct value, so a request
+ * costs no reflection. Properties come out in the order and with the null
+ * handling of JSON-B, so a projection is the full JSON minus what was left out.
+ */
+final class EntityFields<T> {
+
+    static final EntityFields<Activity> ACTIVITY = new EntityFields<Activity>()
+            .string("city", Activity::getCity)
+            .decimal("cost", Activity::getCost)
+            .string("description", Activity::getDescription)
+            .integer("duration", Activity::getDuration)
+            .id("id", Activity::getId)
+            .string("image", Activity::getImage)
+            .string("name", Activity::getName)
+            .decimal("rating", Activity::getRating)
+            .string("timeSlot", Activity::getTimeSlot)
+            .string("type", Activity::getType);
+
+    static final EntityFields<Trip> TRIP = new EntityFields<Trip>()
+            .ids("activityIds", Trip::getActivityIds)
+            .decimal("budget", Trip::getBudget)
+            .string("city", Trip::getCity)
+            .string("createdAt", Trip::getCreatedAt)
+            .string("endDate", Trip::getEndDate)
+            .id("id", Trip::getId)
+            .string("name", Trip::getName)
+            .integer("numberOfDays", Trip::getNumberOfDays)
+            .string("startDate", Trip::getStartDate)
+            .string("status", Trip::getStatus)
+            .id("userId", Trip::getUserId);
+
+    static final EntityFields<User> USER = new EntityFields<User>()
+            .string("createdAt", User::getCreatedAt)
+            .string("email", User::getEmail)
+            .string("fullName", User::getFullName)
+            .id("id", User::getId)
+            .string("password", User::getPassword)
+            .string("username", User::getUsername);
+
+    static final EntityFields<City> CITY = new EntityFields<City>()
+            .string("country", City::getCountry)
+            .string("description", City::getDescription)
+            .id("id", City::getId)
+            .string("image", City::getImage)
+            .string("name", City::getName);
+
+    private static final int MAX_CACHED = 256;
+
+    private final Map<String, Property<T>> properties = new TreeMap<>();
+    private final Map<String, Projection<T>> compiled = new ConcurrentHashMap<>();
+
+    private EntityFields() {
+    }
+
+    /**
+     * @param fields comma-separated property names; null or blank for whole entities
+     * @return the projection, or null to write whole entities
+     * @throws IllegalArgumentException if a name is not a property of the entity
+     */
+    Projection<T> select(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Projection<T> projection = compiled.get(fields);
+        if (projection == null) {
+            projection = compile(fields);
+            if (compiled.size() < MAX_CACHED) {
+                compiled.put(fields, projection);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * One entity, projected to fields, or 400 if they name an unknown property.
+     */
+    Response ok(T entity, String fields) {
+        Projection<T> projection;
+        try {
+            projection = select(fields);
+        } catch (IllegalArgumentException e) {
+            return ErrorResponses.badRequest(e.getMessage());
+        }
+        return Response.ok(projection == null ? entity : JsonStreams.object(entity, projection)).build();
+    }
+
+    private Projection<T> compile(String fields) {
+        Set<String> names = new HashSet<>();
+        for (String name : fields.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!properties.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            names.add(name);
+        }
+        List<Property<T>> selected = new ArrayList<>();
+        properties.forEach((name, property) -> {
+            if (names.contains(name)) {
+                selected.add(property);
+            }
+        });
+        return new Projection<>(selected);
+    }
+
+    private EntityFields<T> string(String name, Function<T, String> getter) {
+        properties.put(name, (generator, entity) -> {
+            String value = getter.apply(entity);
+            if (value != null) {
+                generator.write(name, value);
+            }
+        });
+        return this;
+    }
+
+    private EntityFields<T> id(String name, Function<T, Long> getter) {
+        properties.put(name, (generator, entity) -> {
+            Long value = getter.apply(entity);
+            if (value != null) {
+                generator.write(name, value);
+            }
+        });
+        return this;
+    }
+
+    private EntityFields<T> ids(String name, Function<T, List<Long>> getter) {
+        properties.put(name, (generator, entity) -> {
+            List<Long> values = getter.apply(entity);
+            if (values != null) {
+                generator.writeStartArray(name);
+                for (Long value : values) {
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.write(value);
+                    }
+                }
+                generator.writeEnd();
+            }
+        });
+        return this;
+    }
+
+    private EntityFields<T> integer(String name, ToIntFunction<T> getter) {
+        properties.put(name, (generator, entity) -> generator.write(name, getter.applyAsInt(entity)));
+        return this;
+    }
+
+    private EntityFields<T> decimal(String name, ToDoubleFunction<T> getter) {
+        properties.put(name, (generator, entity) -> generator.write(name, getter.applyAsDouble(entity)));
+        return this;
+    }
+
+    @FunctionalInterface
+    private interface Property<T> {
+        void write(JsonGenerator generator, T entity);
+    }
+
+    /**
+     * The writers selected by one fields value, in output order.
+     */
+    static final class Projection<T> {
+
+        private final List<Property<T>> properties;
+
+        Projection(List<Property<T>> properties) {
+            this.properties = List.copyOf(properties);
+        }
+
+        void write(JsonGenerator generator, T entity) {
+            generator.writeStartObject();
+            for (Property<T> property : properties) {
+                property.write(generator, entity);
+            }
+            generator.writeEnd();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.travelbuddy.rest;
+
+import jakarta.json.Json;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * {"error": message} bodies built with JSON-P, so that messages echoing request
+ * input (a city name, a fields list) are escaped.
+ */
+final class ErrorResponses {
+
+    private ErrorResponses() {
+    }
+
+    static String body(String message) {
+        return Json.createObjectBuilder()
+                .add("error", message == null ? "" : message)
+                .build()
+                .toString();
+    }
+
+    static Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(body(message))
+                .build();
+    }
+}
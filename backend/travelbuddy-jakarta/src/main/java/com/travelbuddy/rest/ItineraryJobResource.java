@@ -0,0 +1,127 @@
+package com.travelbuddy.rest;
+
+import com.travelbuddy.model.ItineraryJob;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.model.MultiCityRequest;
+import com.travelbuddy.service.ItineraryJobService;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * REST Resource for asynchronous itinerary jobs: submit a request, get a job id
+ * back at once (202 with a Location), then poll GET /{id}, optionally waiting up
+ * to ?wait= milliseconds for the job to finish. A full queue answers 503 with
+ * Retry-After.
+ */
+@Path("/itineraries/jobs")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class ItineraryJobResource {
+
+    private static final String TIMEOUT_HEADER = "X-Timeout-Ms";
+    private static final long MAX_WAIT_MILLIS = 30_000;
+
+    private ItineraryJobService jobService = ItineraryJobService.getInstance();
+
+    @Context
+    private UriInfo uriInfo;
+
+    /**
+     * Queue an itinerary request (it may exceed 14 days).
+     */
+    @POST
+    public Response submit(ItineraryRequest request,
+            @HeaderParam(TIMEOUT_HEADER) @DefaultValue("0") long timeoutMs) {
+        if (request == null) {
+            return ErrorResponses.badRequest("Request body is required");
+        }
+        if (timeoutMs > 0) {
+            request.setTimeoutMs(timeoutMs);
+        }
+        return accepted(() -> jobService.submit(request));
+    }
+
+    /**
+     * Queue a multi-city request.
+     */
+    @POST
+    @Path("/multi-city")
+    public Response submitMultiCity(MultiCityRequest request,
+            @HeaderParam(TIMEOUT_HEADER) @DefaultValue("0") long timeoutMs) {
+        if (request == null) {
+            return ErrorResponses.badRequest("Request body is required");
+        }
+        if (timeoutMs > 0) {
+            request.setTimeoutMs(timeoutMs);
+        }
+        return accepted(() -> jobService.submit(request));
+    }
+
+    private Response accepted(Supplier<ItineraryJob> submit) {
+        try {
+            ItineraryJob job = submit.get();
+            return Response.accepted(job)
+                    .location(uriInfo.getBaseUriBuilder().path(ItineraryJobResource.class).path(job.getId()).build())
+                    .build();
+        } catch (RejectedExecutionException e) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", jobService.retryAfterSeconds())
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(ErrorResponses.body("Job queue is full"))
+                    .build();
+        }
+    }
+
+    /**
+     * State of a job; with wait, answers as soon as the job finishes or the wait is over.
+     */
+    @GET
+    @Path("/{id}")
+    public void getJob(@PathParam("id") String id,
+            @QueryParam("wait") @DefaultValue("0") long waitMillis,
+            @Suspended AsyncResponse response) {
+        ItineraryJob job = jobService.get(id);
+        CompletableFuture<ItineraryJob> finished = jobService.whenFinished(id);
+        if (job == null || finished == null) {
+            response.resume(notFound(id));
+            return;
+        }
+        if (job.isFinished() || waitMillis <= 0) {
+            response.resume(Response.ok(job).build());
+            return;
+        }
+        response.setTimeout(Math.min(waitMillis, MAX_WAIT_MILLIS), TimeUnit.MILLISECONDS);
+        response.setTimeoutHandler(timedOut -> {
+            ItineraryJob current = jobService.get(id);
+            timedOut.resume(current != null ? Response.ok(current).build() : notFound(id));
+        });
+        finished.thenAccept(result -> response.resume(Response.ok(result).build()));
+    }
+
+    /**
+     * Cancel a job; a running job keeps what it planned so far.
+     */
+    @DELETE
+    @Path("/{id}")
+    public Response cancel(@PathParam("id") String id) {
+        ItineraryJob job = jobService.cancel(id);
+        return job != null ? Response.ok(job).build() : notFound(id);
+    }
+
+    private static Response notFound(String id) {
+        return Response.status(Response.Status.NOT_FOUND)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(ErrorResponses.body("Job not found: " + id))
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.travelbuddy.rest;
+
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.model.MultiCityRequest;
+import com.travelbuddy.model.ReplanRequest;
+import com.travelbuddy.model.ReplanResponse;
+import com.travelbuddy.service.ItineraryService;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * REST Resource for itinerary generation (the SOAP operations over JSON).
+ * A request may set its time limit in milliseconds with the X-Timeout-Ms header
+ * (or timeoutMs in the body); itineraries cut short by it are flagged partial.
+ */
+@Path("/itineraries")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class ItineraryResource {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String TIMEOUT_HEADER = "X-Timeout-Ms";
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    private ItineraryService itineraryService = ItineraryService.getInstance();
+
+    /**
+     * Build an itinerary: the SOAP buildItinerary operation over JSON, with the
+     * same request and itinerary fields. An unsuccessful itinerary is returned
+     * as is, with status 400.
+     */
+    @POST
+    public Response buildItinerary(ItineraryRequest request,
+            @HeaderParam(TIMEOUT_HEADER) @DefaultValue("0") long timeoutMs) {
+        if (request == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new Itinerary(false, "Request body is required"))
+                    .build();
+        }
+        if (timeoutMs > 0) {
+            request.setTimeoutMs(timeoutMs);
+        }
+        Itinerary itinerary = itineraryService.buildItinerary(request);
+        if (!itinerary.isSuccess()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(itinerary).build();
+        }
+        return Response.ok(itinerary).build();
+    }
+
+    /**
+     * An itinerary as NDJSON, written day by day while it is planned: one line
+     * per day, then a last line with the trip's totals (an itinerary without
+     * days). The duration may exceed 14 days.
+     */
+    @POST
+    @Path("/stream")
+    @Produces(NDJSON)
+    public Response streamItinerary(ItineraryRequest request,
+            @HeaderParam(TIMEOUT_HEADER) @DefaultValue("0") long timeoutMs) {
+        if (request != null && timeoutMs > 0) {
+            request.setTimeoutMs(timeoutMs);
+        }
+        Itinerary rejection = request == null ? new Itinerary(false, "Request body is required")
+                : itineraryService.checkStreamRequest(request);
+        if (rejection != null) {
+            return ErrorResponses.badRequest(rejection.getMessage());
+        }
+        StreamingOutput body = output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try {
+                Itinerary summary = itineraryService.streamItinerary(request, day -> writeLine(writer, day));
+                writeLine(writer, summary);
+            } catch (UncheckedIOException e) {
+                // The client went away; stop planning
+                throw e.getCause();
+            }
+        };
+        return Response.ok(body, NDJSON).build();
+    }
+
+    private static void writeLine(Writer writer, Object value) {
+        try {
+            writer.write(JSONB.toJson(value));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One itinerary over several cities.
+     */
+    @POST
+    @Path("/multi-city")
+    public Response buildMultiCityItinerary(MultiCityRequest request,
+            @HeaderParam(TIMEOUT_HEADER) @DefaultValue("0") long timeoutMs) {
+        if (request == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Request body is required\"}")
+                    .build();
+        }
+        if (timeoutMs > 0) {
+            request.setTimeoutMs(timeoutMs);
+        }
+        Itinerary itinerary = itineraryService.buildMultiCityItinerary(request);
+        if (!itinerary.isSuccess()) {
+            return ErrorResponses.badRequest(itinerary.getMessage());
+        }
+        return Response.ok(itinerary).build();
+    }
+
+    /**
+     * The best distinct alternative itineraries for a request, best first.
+     */
+    @POST
+    @Path("/alternatives")
+    public Response buildAlternatives(ItineraryRequest request,
+            @QueryParam("count") @DefaultValue("0") int count,
+            @QueryParam("beamWidth") @DefaultValue("0") int beamWidth,
+            @HeaderParam(TIMEOUT_HEADER) @DefaultValue("0") long timeoutMs) {
+        if (request == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Request body is required\"}")
+                    .build();
+        }
+        if (timeoutMs > 0) {
+            request.setTimeoutMs(timeoutMs);
+        }
+        List<Itinerary> alternatives = itineraryService.buildAlternatives(request, count, beamWidth);
+        if (alternatives.size() == 1 && !alternatives.get(0).isSuccess()) {
+            return ErrorResponses.badRequest(alternatives.get(0).getMessage());
+        }
+        return Response.ok(alternatives).build();
+    }
+
+    /**
+     * Re-plan an itinerary after pinning or removing activities, or changing the
+     * budget or duration; returns the updated itinerary and the changed slots.
+     */
+    @POST
+    @Path("/replan")
+    public Response replanItinerary(ReplanRequest request,
+            @HeaderParam(TIMEOUT_HEADER) @DefaultValue("0") long timeoutMs) {
+        if (request == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Request body is required\"}")
+                    .build();
+        }
+        if (timeoutMs > 0 && request.getRequest() != null) {
+            request.getRequest().setTimeoutMs(timeoutMs);
+        }
+        ReplanResponse response = itineraryService.replanItinerary(request);
+        if (!response.isSuccess()) {
+            return ErrorResponses.badRequest(response.getMessage());
+        }
+        return Response.ok(response).build();
+    }
+}
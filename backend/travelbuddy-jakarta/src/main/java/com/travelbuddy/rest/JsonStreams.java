@@ -0,0 +1,117 @@
+package com.travelbuddy.rest;
+
+import jakarta.json.Json;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.yasson.YassonJsonb;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * Collection responses written entity by entity while the source is iterated,
+ * instead of binding a whole list to one JSON document in memory. Entities are
+ * mapped by JSON-B as before, so the output is the same as for a List entity,
+ * or projected to a sparse fieldset by {@link EntityFields}.
+ */
+final class JsonStreams {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private static final YassonJsonb JSONB = (YassonJsonb) JsonbBuilder.create();
+    private static final JsonGeneratorFactory GENERATORS = Json.createGeneratorFactory(Collections.emptyMap());
+    private static final MediaType NDJSON_TYPE = MediaType.valueOf(NDJSON);
+
+    private JsonStreams() {
+    }
+
+    /**
+     * A JSON array of items, written through one JsonGenerator.
+     *
+     * @param projection properties to write, or null for whole entities
+     */
+    static <T> StreamingOutput array(Iterable<T> items, EntityFields.Projection<T> projection) {
+        return output -> {
+            try (JsonGenerator generator = GENERATORS.createGenerator(output, StandardCharsets.UTF_8)) {
+                generator.writeStartArray();
+                for (T item : items) {
+                    write(generator, item, projection);
+                }
+                generator.writeEnd();
+            }
+        };
+    }
+
+    /**
+     * Items as NDJSON: one JSON document per line.
+     */
+    static <T> StreamingOutput lines(Iterable<T> items, EntityFields.Projection<T> projection) {
+        return output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            for (T item : items) {
+                if (projection == null) {
+                    writer.write(JSONB.toJson(item));
+                } else {
+                    StringWriter line = new StringWriter();
+                    try (JsonGenerator generator = GENERATORS.createGenerator(line)) {
+                        projection.write(generator, item);
+                    }
+                    writer.write(line.toString());
+                }
+                writer.write('\n');
+            }
+            writer.flush();
+        };
+    }
+
+    /**
+     * One entity, projected.
+     */
+    static <T> StreamingOutput object(T item, EntityFields.Projection<T> projection) {
+        return output -> {
+            try (JsonGenerator generator = GENERATORS.createGenerator(output, StandardCharsets.UTF_8)) {
+                projection.write(generator, item);
+            }
+        };
+    }
+
+    /**
+     * Bulk export of items as a JSON array, or as NDJSON if the client prefers it.
+     *
+     * @param fields comma-separated properties of entityFields to keep, or null for all
+     */
+    static <T> Response export(HttpHeaders headers, Iterable<T> items, EntityFields<T> entityFields, String fields) {
+        EntityFields.Projection<T> projection;
+        try {
+            projection = entityFields.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ErrorResponses.badRequest(e.getMessage());
+        }
+        for (MediaType accepted : headers.getAcceptableMediaTypes()) {
+            if (accepted.isCompatible(MediaType.APPLICATION_JSON_TYPE) && !accepted.isWildcardSubtype()) {
+                break;
+            }
+            if (accepted.isCompatible(NDJSON_TYPE) && !accepted.isWildcardSubtype()) {
+                return Response.ok(lines(items, projection), NDJSON).build();
+            }
+        }
+        return Response.ok(array(items, projection), MediaType.APPLICATION_JSON).build();
+    }
+
+    private static <T> void write(JsonGenerator generator, T item, EntityFields.Projection<T> projection) {
+        if (projection == null) {
+            JSONB.toJson(item, generator);
+        } else {
+            projection.write(generator, item);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.travelbuddy.rest;
+
+import com.travelbuddy.config.RepositoryBootstrap;
+import com.travelbuddy.repository.ActivityRepository;
+import com.travelbuddy.repository.CityRepository;
+import com.travelbuddy.repository.DataFileWatcher;
+import com.travelbuddy.repository.TripRepository;
+import com.travelbuddy.repository.UserRepository;
+import com.travelbuddy.service.ItineraryJobService;
+import com.travelbuddy.service.ItineraryService;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST Resource exposing runtime metrics.
+ */
+@Path("/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class MetricsResource {
+
+    @GET
+    public Response getMetrics() {
+        Map<String, Object> persistence = new LinkedHashMap<>();
+        persistence.put("activities", ActivityRepository.getInstance().getPersistenceMetrics());
+        persistence.put("trips", TripRepository.getInstance().getPersistenceMetrics());
+        persistence.put("users", UserRepository.getInstance().getPersistenceMetrics());
+        persistence.put("cities", CityRepository.getInstance().getPersistenceMetrics());
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("startup", RepositoryBootstrap.getStartupMetrics());
+        metrics.put("persistence", persistence);
+        metrics.put("reload", DataFileWatcher.getInstance().getMetrics());
+        metrics.put("itineraryCache", ItineraryService.getInstance().getCacheMetrics());
+        metrics.put("itineraryCoalescing", ItineraryService.getInstance().getCoalescingMetrics());
+        metrics.put("itineraryDeadlines", ItineraryService.getInstance().getDeadlineMetrics());
+        metrics.put("itineraryJobs", ItineraryJobService.getInstance().getMetrics());
+        return Response.ok(metrics).build();
+    }
+}
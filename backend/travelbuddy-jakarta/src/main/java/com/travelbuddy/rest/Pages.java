@@ -0,0 +1,54 @@
+package com.travelbuddy.rest;
+
+import com.travelbuddy.config.AppConfig;
+import com.travelbuddy.repository.IndexedStore;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+
+import java.util.function.IntFunction;
+
+/**
+ * Keyset pagination of the list endpoints: ?limit=N&after=ID returns up to N
+ * entities with an id greater than ID, in id order. The page size defaults to
+ * travelbuddy.api.defaultPageSize and is capped at travelbuddy.api.maxPageSize.
+ * The body stays a plain JSON array, streamed entity by entity; while more
+ * entities follow, a Link header with rel="next" points at the next page.
+ * ?fields= projects each entity to the listed properties.
+ */
+final class Pages {
+
+    static final int MAX_SIZE = Math.max(1, AppConfig.getInt("travelbuddy.api.maxPageSize", 500));
+    static final int DEFAULT_SIZE = Math.max(1,
+            Math.min(MAX_SIZE, AppConfig.getInt("travelbuddy.api.defaultPageSize", 100)));
+
+    private Pages() {
+    }
+
+    /**
+     * @param limit  requested page size, null for the default
+     * @param fields comma-separated properties of entityFields to keep, or null for all
+     * @param fetch  reads one page of the given size
+     */
+    static <T> Response of(Integer limit, EntityFields<T> entityFields, String fields, UriInfo uriInfo,
+            IntFunction<IndexedStore.Page<T>> fetch) {
+        if (limit != null && limit < 1) {
+            return ErrorResponses.badRequest("limit must be at least 1");
+        }
+        EntityFields.Projection<T> projection;
+        try {
+            projection = entityFields.select(fields);
+        } catch (IllegalArgumentException e) {
+            return ErrorResponses.badRequest(e.getMessage());
+        }
+        int size = limit == null ? DEFAULT_SIZE : Math.min(limit, MAX_SIZE);
+        IndexedStore.Page<T> page = fetch.apply(size);
+        Response.ResponseBuilder response = Response.ok(JsonStreams.array(page.getItems(), projection));
+        if (page.getNext() != null) {
+            response.link(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("after", page.getNext())
+                    .replaceQueryParam("limit", size)
+                    .build(), "next");
+        }
+        return response.build();
+    }
+}
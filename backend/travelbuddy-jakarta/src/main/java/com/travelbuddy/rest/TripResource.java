@@ -4,10 +4,11 @@ import com.travelbuddy.model.Trip;
 import com.travelbuddy.service.TripService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-
-import java.util.List;
+import jakarta.ws.rs.core.UriInfo;
 
 /**
  * REST Resource for Trip CRUD operations.
@@ -19,17 +20,34 @@ public class TripResource {
 
     private TripService tripService = TripService.getInstance();
 
+    @Context
+    private UriInfo uriInfo;
+
+    @Context
+    private HttpHeaders headers;
+
+    @GET
+    public Response getAllTrips(@QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+            @QueryParam("fields") String fields) {
+        return Pages.of(limit, EntityFields.TRIP, fields, uriInfo, size -> tripService.getTripsPage(after, size));
+    }
+
+    /**
+     * Every trip at once, streamed as a JSON array, or as NDJSON with
+     * Accept: application/x-ndjson.
+     */
     @GET
-    public Response getAllTrips() {
-        List<Trip> trips = tripService.getAllTrips();
-        return Response.ok(trips).build();
+    @Path("/export")
+    @Produces({MediaType.APPLICATION_JSON, JsonStreams.NDJSON})
+    public Response exportTrips(@QueryParam("fields") String fields) {
+        return JsonStreams.export(headers, tripService.exportTrips(), EntityFields.TRIP, fields);
     }
 
     @GET
     @Path("/{id}")
-    public Response getTripById(@PathParam("id") Long id) {
+    public Response getTripById(@PathParam("id") Long id, @QueryParam("fields") String fields) {
         return tripService.getTripById(id)
-                .map(trip -> Response.ok(trip).build())
+                .map(trip -> EntityFields.TRIP.ok(trip, fields))
                 .orElse(Response.status(Response.Status.NOT_FOUND)
                         .entity("{\"error\": \"Trip not found\"}")
                         .build());
@@ -37,16 +55,20 @@ public class TripResource {
 
     @GET
     @Path("/user/{userId}")
-    public Response getTripsByUserId(@PathParam("userId") Long userId) {
-        List<Trip> trips = tripService.getTripsByUserId(userId);
-        return Response.ok(trips).build();
+    public Response getTripsByUserId(@PathParam("userId") Long userId,
+            @QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+            @QueryParam("fields") String fields) {
+        return Pages.of(limit, EntityFields.TRIP, fields, uriInfo,
+                size -> tripService.getTripsPageByUserId(userId, after, size));
     }
 
     @GET
     @Path("/city/{city}")
-    public Response getTripsByCity(@PathParam("city") String city) {
-        List<Trip> trips = tripService.getTripsByCity(city);
-        return Response.ok(trips).build();
+    public Response getTripsByCity(@PathParam("city") String city,
+            @QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+            @QueryParam("fields") String fields) {
+        return Pages.of(limit, EntityFields.TRIP, fields, uriInfo,
+                size -> tripService.getTripsPageByCity(city, after, size));
     }
 
     @POST
@@ -4,10 +4,11 @@ import com.travelbuddy.model.User;
 import com.travelbuddy.service.UserService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-
-import java.util.List;
+import jakarta.ws.rs.core.UriInfo;
 
 /**
  * REST Resource for User CRUD operations.
@@ -19,17 +20,34 @@ public class UserResource {
 
     private UserService userService = UserService.getInstance();
 
+    @Context
+    private UriInfo uriInfo;
+
+    @Context
+    private HttpHeaders headers;
+
+    @GET
+    public Response getAllUsers(@QueryParam("limit") Integer limit, @QueryParam("after") Long after,
+            @QueryParam("fields") String fields) {
+        return Pages.of(limit, EntityFields.USER, fields, uriInfo, size -> userService.getUsersPage(after, size));
+    }
+
+    /**
+     * Every user at once, streamed as a JSON array, or as NDJSON with
+     * Accept: application/x-ndjson.
+     */
     @GET
-    public Response getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return Response.ok(users).build();
+    @Path("/export")
+    @Produces({MediaType.APPLICATION_JSON, JsonStreams.NDJSON})
+    public Response exportUsers(@QueryParam("fields") String fields) {
+        return JsonStreams.export(headers, userService.exportUsers(), EntityFields.USER, fields);
     }
 
     @GET
     @Path("/{id}")
-    public Response getUserById(@PathParam("id") Long id) {
+    public Response getUserById(@PathParam("id") Long id, @QueryParam("fields") String fields) {
         return userService.getUserById(id)
-                .map(user -> Response.ok(user).build())
+                .map(user -> EntityFields.USER.ok(user, fields))
                 .orElse(Response.status(Response.Status.NOT_FOUND)
                         .entity("{\"error\": \"User not found\"}")
                         .build());
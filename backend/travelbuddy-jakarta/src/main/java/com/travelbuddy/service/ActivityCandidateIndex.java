@@ -0,0 +1,266 @@
+package com.travelbuddy.service;
+
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.repository.ActivityRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Itinerary candidates per city, ready for the greedy picker: activities sorted
+ * by rating (best first) then cost (cheaper first), and for every time slot the
+ * positions of the activities that fit it, either because they name that slot
+ * or because they have none. Costs and types are kept in primitive arrays so a
+ * pick is a walk over int and double arrays.
+ * A city is built on first use and dropped whenever one of its activities is
+ * saved, deleted or reloaded.
+ */
+public class ActivityCandidateIndex {
+
+    private static final CityCandidates EMPTY = new CityCandidates(new ArrayList<>(), new String[0]);
+
+    private final String[] timeSlots;
+    private final ActivityRepository activityRepository;
+    private final Map<String, CityCandidates> byCity = new ConcurrentHashMap<>();
+
+    public ActivityCandidateIndex(ActivityRepository activityRepository, String... timeSlots) {
+        this.activityRepository = activityRepository;
+        this.timeSlots = timeSlots.clone();
+        activityRepository.addChangeListener((before, after) -> {
+            if (before != null) {
+                invalidate(before.getCity());
+            }
+            if (after != null) {
+                invalidate(after.getCity());
+            }
+        });
+    }
+
+    /**
+     * Candidates for a city (case-insensitive), empty if it has no activities.
+     */
+    public CityCandidates forCity(String city) {
+        if (city == null) {
+            return EMPTY;
+        }
+        // Not cached when empty, so unknown city names do not pile up
+        CityCandidates candidates = byCity.computeIfAbsent(key(city), k -> {
+            List<Activity> activities = activityRepository.findByCity(city);
+            return activities.isEmpty() ? null : new CityCandidates(activities, timeSlots);
+        });
+        return candidates != null ? candidates : EMPTY;
+    }
+
+    private void invalidate(String city) {
+        if (city != null) {
+            // Waits for a concurrent build of the same city, so a build that read the old data is discarded
+            byCity.remove(key(city));
+        }
+    }
+
+    private static String key(String city) {
+        return city.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Immutable candidate set of one city. Positions refer to the sorted order.
+     */
+    public static final class CityCandidates {
+
+        /** {@link #getSlot} of an activity without time slot, which fits any slot. */
+        public static final int ANY_SLOT = -1;
+        /** {@link #getSlot} of an activity whose time slot is none of the index's slots. */
+        public static final int NO_SLOT = -2;
+
+        private final Activity[] activities;
+        private final double[] costs;
+        private final double[] ratings;
+        private final int[] slots;
+        private final int[] typeCodes;
+        private final String[] types;
+        private final int[][] slotPositions;
+        private final Map<Long, Integer> positionsById;
+        private final boolean budgetOnlyShrinks;
+
+        CityCandidates(List<Activity> activities, String[] timeSlots) {
+            // Same stable sort as the original per-request sort, so ties keep id order
+            activities.sort((a, b) -> {
+                int ratingCompare = Double.compare(b.getRating(), a.getRating());
+                if (ratingCompare == 0) {
+                    return Double.compare(a.getCost(), b.getCost());
+                }
+                return ratingCompare;
+            });
+            int size = activities.size();
+            this.activities = activities.toArray(new Activity[0]);
+            this.costs = new double[size];
+            this.ratings = new double[size];
+            this.slots = new int[size];
+            this.typeCodes = new int[size];
+            this.positionsById = new HashMap<>(size * 2);
+            Map<String, Integer> typeDictionary = new LinkedHashMap<>();
+            boolean noNegativeCost = true;
+            for (int i = 0; i < size; i++) {
+                Activity activity = this.activities[i];
+                costs[i] = activity.getCost();
+                ratings[i] = activity.getRating();
+                slots[i] = slotOf(activity.getTimeSlot(), timeSlots);
+                noNegativeCost &= !(costs[i] < 0);
+                if (activity.getId() != null) {
+                    positionsById.put(activity.getId(), i);
+                }
+                typeCodes[i] = activity.getType() == null ? -1
+                        : typeDictionary.computeIfAbsent(activity.getType().toLowerCase(), t -> typeDictionary.size());
+            }
+            this.types = typeDictionary.keySet().toArray(new String[0]);
+            this.budgetOnlyShrinks = noNegativeCost;
+
+            this.slotPositions = new int[timeSlots.length][];
+            for (int s = 0; s < timeSlots.length; s++) {
+                int[] positions = new int[size];
+                int count = 0;
+                for (int i = 0; i < size; i++) {
+                    String timeSlot = this.activities[i].getTimeSlot();
+                    if (timeSlot == null || timeSlot.equalsIgnoreCase(timeSlots[s]) || timeSlot.isEmpty()) {
+                        positions[count++] = i;
+                    }
+                }
+                slotPositions[s] = Arrays.copyOf(positions, count);
+            }
+        }
+
+        private static int slotOf(String timeSlot, String[] timeSlots) {
+            if (timeSlot == null || timeSlot.isEmpty()) {
+                return ANY_SLOT;
+            }
+            for (int s = 0; s < timeSlots.length; s++) {
+                if (timeSlot.equalsIgnoreCase(timeSlots[s])) {
+                    return s;
+                }
+            }
+            return NO_SLOT;
+        }
+
+        public int size() {
+            return activities.length;
+        }
+
+        public Activity get(int position) {
+            return activities[position];
+        }
+
+        public double getCost(int position) {
+            return costs[position];
+        }
+
+        public double getRating(int position) {
+            return ratings[position];
+        }
+
+        /**
+         * Position of the activity with the given id, or -1 if it is not a candidate of this city.
+         */
+        public int positionOf(Long activityId) {
+            Integer position = activityId == null ? null : positionsById.get(activityId);
+            return position != null ? position : -1;
+        }
+
+        /**
+         * Index of the only time slot the activity fits, {@link #ANY_SLOT} or {@link #NO_SLOT}.
+         */
+        public int getSlot(int position) {
+            return slots[position];
+        }
+
+        /**
+         * Number of activities that fit a time slot.
+         */
+        public int slotSize(int slot) {
+            return slotPositions[slot].length;
+        }
+
+        /**
+         * Position of the i-th best activity that fits a time slot.
+         */
+        public int slotPosition(int slot, int i) {
+            return slotPositions[slot][i];
+        }
+
+        /**
+         * Whether the activity at position passes a mask from {@link #typeMask}.
+         */
+        public boolean acceptsType(boolean[] typeMask, int position) {
+            return accepts(typeMask, typeCodes[position]);
+        }
+
+        /**
+         * Which type codes a request for the given types (case-insensitive) accepts.
+         *
+         * @return null to accept every type, or a mask that may accept none
+         */
+        public boolean[] typeMask(List<String> requestedTypes) {
+            if (requestedTypes == null || requestedTypes.isEmpty()) {
+                return null;
+            }
+            List<String> lowerCase = new ArrayList<>(requestedTypes.size());
+            for (String type : requestedTypes) {
+                lowerCase.add(type.toLowerCase());
+            }
+            boolean[] mask = new boolean[types.length];
+            for (int code = 0; code < types.length; code++) {
+                mask[code] = lowerCase.contains(types[code]);
+            }
+            return mask;
+        }
+
+        public static boolean acceptsAny(boolean[] typeMask) {
+            if (typeMask == null) {
+                return true;
+            }
+            for (boolean accepted : typeMask) {
+                if (accepted) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Best unused candidate for a time slot that fits the type mask and budget.
+         * Entries that can never qualify again during this request (used, wrong
+         * type, or over a budget that only shrinks) are skipped for good by
+         * advancing cursors[slot], so a whole itinerary walks each slot list once.
+         *
+         * @param slot    index into the time slots the index was created with
+         * @param cursors one cursor per time slot, zero-initialised per request
+         * @return the position of the candidate, or -1 if there is none
+         */
+        public int next(int slot, int[] cursors, BitSet used, boolean[] typeMask, double budget) {
+            int[] positions = slotPositions[slot];
+            boolean skippable = true;
+            for (int i = cursors[slot]; i < positions.length; i++) {
+                int position = positions[i];
+                boolean available = !used.get(position) && accepts(typeMask, typeCodes[position]);
+                if (available && costs[position] <= budget) {
+                    return position;
+                }
+                skippable &= !available || budgetOnlyShrinks;
+                if (skippable) {
+                    cursors[slot] = i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean accepts(boolean[] typeMask, int typeCode) {
+            return typeMask == null || (typeCode >= 0 && typeMask[typeCode]);
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.travelbuddy.service;
 
 import com.travelbuddy.model.Activity;
 import com.travelbuddy.repository.ActivityRepository;
+import com.travelbuddy.repository.IndexedStore;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +29,17 @@ public class ActivityService {
         return activityRepository.findAll();
     }
 
+    public IndexedStore.Page<Activity> getActivitiesPage(Long after, int limit) {
+        return activityRepository.findPage(after, limit);
+    }
+
+    /**
+     * Every activity in id order, read from the repository as it is iterated.
+     */
+    public Collection<Activity> exportActivities() {
+        return activityRepository.values();
+    }
+
     public Optional<Activity> getActivityById(Long id) {
         return activityRepository.findById(id);
     }
@@ -35,10 +48,18 @@ public class ActivityService {
         return activityRepository.findByCity(city);
     }
 
+    public IndexedStore.Page<Activity> getActivitiesPageByCity(String city, Long after, int limit) {
+        return activityRepository.findPageByCity(city, after, limit);
+    }
+
     public List<Activity> getActivitiesByType(String type) {
         return activityRepository.findByType(type);
     }
 
+    public IndexedStore.Page<Activity> getActivitiesPageByType(String type, Long after, int limit) {
+        return activityRepository.findPageByType(type, after, limit);
+    }
+
     public List<Activity> getActivitiesByCityAndTypes(String city, List<String> types) {
         return activityRepository.findByCityAndTypes(city, types);
     }
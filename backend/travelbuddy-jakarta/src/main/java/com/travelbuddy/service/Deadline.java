@@ -0,0 +1,56 @@
+package com.travelbuddy.service;
+
+/**
+ * Time limit of one itinerary computation, checked cooperatively by the
+ * planners between steps so an abandoned or overlong request stops and gives
+ * its thread back. A deadline also expires when it is cancelled, when a deadline
+ * it was derived from expires, or when the checking thread is interrupted.
+ */
+public final class Deadline {
+
+    private final long expiresAt;
+    private final Deadline parent;
+    private volatile boolean cancelled;
+
+    private Deadline(long expiresAt, Deadline parent) {
+        this.expiresAt = expiresAt;
+        this.parent = parent;
+    }
+
+    /**
+     * A deadline the given number of milliseconds from now.
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + Math.max(0, millis) * 1_000_000L, null);
+    }
+
+    /**
+     * A deadline at most millis from now that also expires with this one.
+     */
+    public Deadline atMost(long millis) {
+        long candidate = System.nanoTime() + Math.max(0, millis) * 1_000_000L;
+        return new Deadline(candidate - expiresAt < 0 ? candidate : expiresAt, this);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Whether the computation should stop: time is up or it was cancelled.
+     */
+    public boolean isExpired() {
+        return isCancelled() || System.nanoTime() - expiresAt >= 0 || (parent != null && parent.isExpired());
+    }
+
+    /**
+     * Whether the computation was stopped on purpose rather than by the clock.
+     */
+    public boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted() || (parent != null && parent.isCancelled());
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, (expiresAt - System.nanoTime()) / 1_000_000L);
+    }
+}
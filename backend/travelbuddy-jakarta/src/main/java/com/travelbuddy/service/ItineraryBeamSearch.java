@@ -0,0 +1,151 @@
+package com.travelbuddy.service;
+
+import com.travelbuddy.service.ActivityCandidateIndex.CityCandidates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Several good, distinct itineraries in one pass: a beam search over the slots
+ * of the trip in order (day 1 morning, afternoon, evening, day 2 ...). At each
+ * slot every kept partial itinerary is extended with either nothing or one of
+ * its few best eligible activities, and the best beamWidth extensions survive,
+ * ranked like the greedy mode: total rating first, then lower total cost.
+ *
+ * <p>Partial itineraries are immutable nodes pointing at their parent, so all
+ * alternatives share the work and memory of their common prefix. Extensions
+ * that picked the same activities so far are merged, which keeps the beam diverse.
+ */
+public class ItineraryBeamSearch {
+
+    private static final Comparator<Node> BEST_FIRST = Comparator
+            .comparingDouble((Node node) -> -node.rating)
+            .thenComparingDouble(node -> node.cost);
+
+    /**
+     * @param perDay    maximum activities per day
+     * @param slots     number of time slots per day (of the candidate index)
+     * @param count     number of itineraries wanted
+     * @param beamWidth partial itineraries kept per slot, at least count
+     * @param deadline  checked after each day; the search then ends with the days searched so far
+     * @return up to count distinct plans, best first; plan[day][slot] is a candidate position or -1,
+     *         and plan[day] is null for days not reached before the deadline
+     */
+    public List<int[][]> search(CityCandidates candidates, boolean[] typeMask, int days, int perDay, int slots,
+            double budget, int count, int beamWidth, Deadline deadline) {
+        List<Node> beam = new ArrayList<>();
+        beam.add(new Node(null, -1, 0, 0, budget, 0, 0));
+        int steps = 0;
+        for (int step = 0; step < days * slots; step++) {
+            int slot = step % slots;
+            if (slot == 0 && step > 0 && deadline.isExpired()) {
+                break;
+            }
+            steps++;
+            // A wide beam needs only a few children per node to refill; the first slot needs many
+            int branching = Math.min(beamWidth, Math.max(4, (2 * beamWidth + beam.size() - 1) / beam.size()));
+            List<Node> extensions = new ArrayList<>();
+            for (Node node : beam) {
+                int countToday = slot == 0 ? 0 : node.countToday;
+                extensions.add(new Node(node, -1, node.rating, node.cost, node.remaining, countToday, node.selection));
+                if (countToday >= perDay) {
+                    continue;
+                }
+                int found = 0;
+                for (int i = 0; i < candidates.slotSize(slot) && found < branching; i++) {
+                    int position = candidates.slotPosition(slot, i);
+                    double cost = candidates.getCost(position);
+                    if (cost <= node.remaining && candidates.acceptsType(typeMask, position) && !node.uses(position)) {
+                        extensions.add(new Node(node, position, node.rating + candidates.getRating(position),
+                                node.cost + cost, node.remaining - cost, countToday + 1,
+                                node.selection + mix(position)));
+                        found++;
+                    }
+                }
+            }
+            extensions.sort(BEST_FIRST);
+            beam = distinct(extensions, beamWidth, true);
+        }
+
+        List<int[][]> plans = new ArrayList<>();
+        for (Node node : distinct(beam, count, false)) {
+            int[][] plan = new int[days][];
+            for (int day = 0; day < steps / slots; day++) {
+                plan[day] = new int[slots];
+                Arrays.fill(plan[day], -1);
+            }
+            int step = steps - 1;
+            for (Node current = node; current.parent != null; current = current.parent, step--) {
+                if (current.position >= 0) {
+                    plan[step / slots][step % slots] = current.position;
+                }
+            }
+            plans.add(plan);
+        }
+        return plans;
+    }
+
+    /**
+     * The first limit nodes of a sorted list that differ in their selection of
+     * activities (and, while still building a day, in that day's count).
+     */
+    private static List<Node> distinct(List<Node> sorted, int limit, boolean perDayCount) {
+        List<Node> kept = new ArrayList<>(Math.min(limit, sorted.size()));
+        Set<Long> seen = new HashSet<>();
+        for (Node node : sorted) {
+            if (kept.size() >= limit) {
+                break;
+            }
+            long key = perDayCount ? node.selection * 31 + node.countToday : node.selection;
+            if (seen.add(key)) {
+                kept.add(node);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Order-independent fingerprint contribution of one position (SplitMix64 finaliser).
+     */
+    private static long mix(int position) {
+        long z = position + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Node {
+
+        final Node parent;
+        final int position;
+        final double rating;
+        final double cost;
+        final double remaining;
+        final int countToday;
+        final long selection;
+
+        Node(Node parent, int position, double rating, double cost, double remaining, int countToday,
+                long selection) {
+            this.parent = parent;
+            this.position = position;
+            this.rating = rating;
+            this.cost = cost;
+            this.remaining = remaining;
+            this.countToday = countToday;
+            this.selection = selection;
+        }
+
+        boolean uses(int candidate) {
+            for (Node node = this; node != null; node = node.parent) {
+                if (node.position == candidate) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
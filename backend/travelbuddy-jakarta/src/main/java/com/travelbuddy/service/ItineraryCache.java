@@ -0,0 +1,184 @@
+package com.travelbuddy.service;
+
+import com.travelbuddy.config.AppConfig;
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryDay;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.model.ScheduledActivity;
+import com.travelbuddy.repository.ActivityRepository;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache of generated itineraries, keyed by the canonical form of the request
+ * (lower-cased city and preference, the set of lower-cased types, budget,
+ * duration and mode) so that presets sent over and over are computed once.
+ * Bounded by travelbuddy.itinerary.cache.maxEntries (least recently used goes
+ * first) and travelbuddy.itinerary.cache.ttlSeconds; a size of 0 disables it.
+ * All entries of a city are dropped whenever one of its activities changes.
+ * Hits are returned as copies whose days start today.
+ */
+public class ItineraryCache {
+
+    private final int maxEntries = AppConfig.getInt("travelbuddy.itinerary.cache.maxEntries", 1000);
+    private final long ttlNanos = AppConfig.getLong("travelbuddy.itinerary.cache.ttlSeconds", 600) * 1_000_000_000L;
+
+    private final Map<ItineraryRequestKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped on every change to a city, so a result computed from older data is never stored as current
+    private final Map<String, AtomicLong> cityVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ItineraryCache(ActivityRepository activityRepository) {
+        activityRepository.addChangeListener((before, after) -> {
+            if (before != null) {
+                invalidate(before.getCity());
+            }
+            if (after != null && (before == null || !Objects.equals(cityKey(before), cityKey(after)))) {
+                invalidate(after.getCity());
+            }
+        });
+    }
+
+    /**
+     * The cached itinerary for request, or the one compute builds for it.
+     * Only complete, successful itineraries are cached: not partial or fallback ones.
+     */
+    public Itinerary get(ItineraryRequest request, Function<ItineraryRequest, Itinerary> compute) {
+        if (maxEntries <= 0 || request.getCity() == null) {
+            return compute.apply(request);
+        }
+        ItineraryRequestKey key = new ItineraryRequestKey(request);
+        long now = System.nanoTime();
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            if (cached != null && now - cached.createdAt > ttlNanos) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return restamp(cached.itinerary, request.getCity());
+        }
+
+        misses.incrementAndGet();
+        long version = versionOf(key.getCity());
+        Itinerary itinerary = compute.apply(request);
+        // A partial or fallback itinerary only reflects how much time that request had
+        if (itinerary.isSuccess() && !itinerary.isPartial() && !itinerary.isFallback()) {
+            Entry entry = new Entry(restamp(itinerary, itinerary.getCity()), now);
+            synchronized (entries) {
+                if (versionOf(key.getCity()) == version) {
+                    entries.put(key, entry);
+                    evictOverflow();
+                }
+            }
+        }
+        return itinerary;
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void invalidate(String city) {
+        String key = city == null ? null : city.toLowerCase(Locale.ROOT);
+        if (key == null) {
+            return;
+        }
+        synchronized (entries) {
+            cityVersions.computeIfAbsent(key, c -> new AtomicLong()).incrementAndGet();
+            entries.keySet().removeIf(k -> {
+                boolean stale = k.getCity().equals(key);
+                if (stale) {
+                    invalidations.incrementAndGet();
+                }
+                return stale;
+            });
+        }
+    }
+
+    private long versionOf(String city) {
+        AtomicLong version = cityVersions.get(city);
+        return version == null ? 0 : version.get();
+    }
+
+    private static String cityKey(Activity activity) {
+        return activity.getCity() == null ? null : activity.getCity().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A private copy of itinerary whose days start today, so cached results
+     * are never shared with (or changed by) callers.
+     */
+    static Itinerary restamp(Itinerary itinerary, String city) {
+        LocalDate startDate = LocalDate.now();
+        Itinerary copy = new Itinerary(city, itinerary.getTotalDays());
+        for (ItineraryDay day : itinerary.getDays()) {
+            ItineraryDay dayCopy = new ItineraryDay(day.getDayNumber(),
+                    startDate.plusDays(day.getDayNumber() - 1).format(DateTimeFormatter.ISO_LOCAL_DATE));
+            dayCopy.setCity(day.getCity());
+            for (ScheduledActivity activity : day.getActivities()) {
+                dayCopy.addActivity(new ScheduledActivity(activity.getActivityId(), activity.getName(),
+                        activity.getStartTime(), activity.getEndTime(), activity.getCost(),
+                        activity.getType(), activity.getDescription()));
+            }
+            copy.addDay(dayCopy);
+        }
+        copy.setRemainingBudget(itinerary.getRemainingBudget());
+        copy.setSuccess(itinerary.isSuccess());
+        copy.setPartial(itinerary.isPartial());
+        copy.setMessage(itinerary.getMessage());
+        return copy;
+    }
+
+    /**
+     * Hit/miss/eviction counters for the metrics endpoint.
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (entries) {
+            metrics.put("size", entries.size());
+        }
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("evictions", evictions.get());
+        metrics.put("expirations", expirations.get());
+        metrics.put("invalidations", invalidations.get());
+        return metrics;
+    }
+
+    private static final class Entry {
+
+        final Itinerary itinerary;
+        final long createdAt;
+
+        Entry(Itinerary itinerary, long createdAt) {
+            this.itinerary = itinerary;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.travelbuddy.service;
+
+import com.travelbuddy.config.AppConfig;
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryDay;
+import com.travelbuddy.model.ItineraryJob;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.model.MultiCityRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Asynchronous itinerary jobs, so heavy requests (optimised, multi-city or
+ * longer than 14 days) do not hold an HTTP thread while they compute.
+ * Jobs run on travelbuddy.jobs.workers threads (default one per core) behind
+ * a queue of travelbuddy.jobs.queueCapacity jobs (default 100); a full queue
+ * rejects new jobs. A job's deadline starts when it leaves the queue. Finished
+ * jobs are kept for travelbuddy.jobs.resultTtlSeconds (default 600).
+ */
+public class ItineraryJobService {
+
+    private static ItineraryJobService instance;
+
+    public static synchronized ItineraryJobService getInstance() {
+        if (instance == null) {
+            instance = new ItineraryJobService();
+        }
+        return instance;
+    }
+
+    private static final int MAX_DURATION = 14;
+    private static final long SWEEP_INTERVAL_MILLIS = 1_000;
+
+    private final ItineraryService itineraryService = ItineraryService.getInstance();
+    private final int workers = Math.max(1,
+            AppConfig.getInt("travelbuddy.jobs.workers", Runtime.getRuntime().availableProcessors()));
+    private final int queueCapacity = Math.max(1, AppConfig.getInt("travelbuddy.jobs.queueCapacity", 100));
+    private final long resultTtlMillis = AppConfig.getLong("travelbuddy.jobs.resultTtlSeconds", 600) * 1000;
+    private final AtomicInteger threadNumber = new AtomicInteger();
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread thread = new Thread(r, "itinerary-job-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private volatile long lastSweep = System.currentTimeMillis();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong waitNanosTotal = new AtomicLong();
+    private final AtomicLong waitNanosMax = new AtomicLong();
+    private final AtomicLong ran = new AtomicLong();
+    private final AtomicLong runNanosTotal = new AtomicLong();
+    private final AtomicLong runNanosMax = new AtomicLong();
+
+    private ItineraryJobService() {
+    }
+
+    /**
+     * Queue an itinerary request. Requests longer than 14 days are planned like
+     * a streamed itinerary and collected into one result.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public ItineraryJob submit(ItineraryRequest request) {
+        if (request.getDuration() > MAX_DURATION) {
+            return submit(request.getTimeoutMs(), deadline -> collectDays(request, deadline));
+        }
+        return submit(request.getTimeoutMs(), deadline -> itineraryService.buildItinerary(request, deadline));
+    }
+
+    /**
+     * Queue a multi-city request.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public ItineraryJob submit(MultiCityRequest request) {
+        return submit(request.getTimeoutMs(), deadline -> itineraryService.buildMultiCityItinerary(request, deadline));
+    }
+
+    private ItineraryJob submit(long timeoutMillis, Function<Deadline, Itinerary> work) {
+        sweep();
+        Job job = new Job(UUID.randomUUID().toString(), timeoutMillis, work);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            rejected.incrementAndGet();
+            throw e;
+        }
+        submitted.incrementAndGet();
+        return job.view();
+    }
+
+    private Itinerary collectDays(ItineraryRequest request, Deadline deadline) {
+        List<ItineraryDay> days = new ArrayList<>();
+        Itinerary itinerary = itineraryService.streamItinerary(request, deadline, days::add);
+        if (itinerary.isSuccess()) {
+            itinerary.setDays(days);
+        }
+        return itinerary;
+    }
+
+    /**
+     * Current state of a job, or null if it is unknown or its result has expired.
+     */
+    public ItineraryJob get(String id) {
+        Job job = find(id);
+        return job != null ? job.view() : null;
+    }
+
+    /**
+     * Completes with the job's final state once it has finished, or null if the job is unknown.
+     */
+    public CompletableFuture<ItineraryJob> whenFinished(String id) {
+        Job job = find(id);
+        return job != null ? job.finished : null;
+    }
+
+    /**
+     * Cancel a job: a queued job is dropped, a running one stops at its next
+     * deadline check and keeps what it planned so far.
+     *
+     * @return the job's state, or null if it is unknown
+     */
+    public ItineraryJob cancel(String id) {
+        Job job = find(id);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.isFinished() || job.cancelRequested) {
+                return job.view();
+            }
+            job.cancelRequested = true;
+            if (job.deadline != null) {
+                job.deadline.cancel();
+                return job.view();
+            }
+        }
+        // Still queued; if a worker took it meanwhile, it sees the flag and leaves it to us
+        executor.remove(job);
+        job.finish(ItineraryJob.CANCELLED, new Itinerary(false, "Job cancelled"));
+        return job.view();
+    }
+
+    /**
+     * Rough seconds until the queue has room again, for a Retry-After header.
+     */
+    public long retryAfterSeconds() {
+        long runs = ran.get();
+        double meanRunNanos = runs > 0 ? (double) runNanosTotal.get() / runs : TimeUnit.SECONDS.toNanos(1);
+        double seconds = (executor.getQueue().size() + 1) * meanRunNanos / workers / 1e9;
+        return Math.max(1, Math.min(60, (long) Math.ceil(seconds)));
+    }
+
+    private Job find(String id) {
+        sweep();
+        Job job = id == null ? null : jobs.get(id);
+        if (job != null && job.isExpired(System.currentTimeMillis())) {
+            jobs.remove(id, job);
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * Drop expired results, at most once per second.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep < SWEEP_INTERVAL_MILLIS) {
+            return;
+        }
+        lastSweep = now;
+        for (Iterator<Job> it = jobs.values().iterator(); it.hasNext();) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Queue depth, outcomes and wait/run times for the metrics endpoint.
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("workers", workers);
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("running", executor.getActiveCount());
+        metrics.put("stored", jobs.size());
+        metrics.put("submitted", submitted.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("completed", completed.get());
+        metrics.put("failed", failed.get());
+        metrics.put("cancelled", cancelled.get());
+        long starts = started.get();
+        metrics.put("waitMsMean", starts > 0 ? waitNanosTotal.get() / starts / 1e6 : 0.0);
+        metrics.put("waitMsMax", waitNanosMax.get() / 1e6);
+        long runs = ran.get();
+        metrics.put("runMsMean", runs > 0 ? runNanosTotal.get() / runs / 1e6 : 0.0);
+        metrics.put("runMsMax", runNanosMax.get() / 1e6);
+        return metrics;
+    }
+
+    private static String timestamp(long epochMillis) {
+        return epochMillis == 0 ? null : Instant.ofEpochMilli(epochMillis).toString();
+    }
+
+    private final class Job implements Runnable {
+
+        final String id;
+        final long timeoutMillis;
+        final Function<Deadline, Itinerary> work;
+        final long submittedAt = System.currentTimeMillis();
+        final long submittedNanos = System.nanoTime();
+        final CompletableFuture<ItineraryJob> finished = new CompletableFuture<>();
+
+        // Guarded by this
+        boolean cancelRequested;
+        Deadline deadline;
+
+        volatile String status = ItineraryJob.QUEUED;
+        volatile long startedAt;
+        volatile long completedAt;
+        volatile Itinerary itinerary;
+
+        Job(String id, long timeoutMillis, Function<Deadline, Itinerary> work) {
+            this.id = id;
+            this.timeoutMillis = timeoutMillis;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            Deadline runDeadline;
+            synchronized (this) {
+                if (cancelRequested) {
+                    return;
+                }
+                runDeadline = itineraryService.deadline(timeoutMillis);
+                deadline = runDeadline;
+                startedAt = System.currentTimeMillis();
+                status = ItineraryJob.RUNNING;
+            }
+            long start = System.nanoTime();
+            record(start - submittedNanos, started, waitNanosTotal, waitNanosMax);
+
+            Itinerary result;
+            String outcome;
+            try {
+                result = work.apply(runDeadline);
+                if (result.isPartial() && runDeadline.isCancelled()) {
+                    outcome = ItineraryJob.CANCELLED;
+                } else {
+                    outcome = result.isSuccess() ? ItineraryJob.DONE : ItineraryJob.FAILED;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error running itinerary job " + id + ": " + e.getMessage());
+                result = new Itinerary(false, "Error: " + e.getMessage());
+                outcome = ItineraryJob.FAILED;
+            }
+            record(System.nanoTime() - start, ran, runNanosTotal, runNanosMax);
+            finish(outcome, result);
+        }
+
+        void finish(String outcome, Itinerary result) {
+            synchronized (this) {
+                itinerary = result;
+                completedAt = System.currentTimeMillis();
+                status = outcome;
+            }
+            if (ItineraryJob.DONE.equals(outcome)) {
+                completed.incrementAndGet();
+            } else if (ItineraryJob.FAILED.equals(outcome)) {
+                failed.incrementAndGet();
+            } else {
+                cancelled.incrementAndGet();
+            }
+            finished.complete(view());
+        }
+
+        boolean isFinished() {
+            return completedAt != 0;
+        }
+
+        boolean isExpired(long now) {
+            return isFinished() && now - completedAt > resultTtlMillis;
+        }
+
+        synchronized ItineraryJob view() {
+            return new ItineraryJob(id, status, timestamp(submittedAt), timestamp(startedAt),
+                    timestamp(completedAt), itinerary);
+        }
+    }
+
+    private static void record(long nanos, AtomicLong count, AtomicLong total, AtomicLong max) {
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -0,0 +1,288 @@
+package com.travelbuddy.service;
+
+import com.travelbuddy.config.AppConfig;
+import com.travelbuddy.service.ActivityCandidateIndex.CityCandidates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Budget-optimal activity selection for itineraries: maximises the total rating
+ * of the scheduled activities subject to the budget, one activity per time slot
+ * and day, and the per-day activity count.
+ *
+ * <p>It is a 0/1 knapsack over costs discretised into travelbuddy.optimize.budgetSteps
+ * cells of budget/steps each, rounded up so a plan never exceeds the real budget.
+ * Activities tied to one time slot are solved group by group, counting how many
+ * a group contributes (at most one per day), and activities without a slot fill
+ * the remaining capacity. Within a group, an activity that is matched or beaten
+ * in both rating and cost by as many others as the group can use is pruned, which
+ * keeps large cities to a few hundred items.
+ *
+ * <p>Any selection that respects the per-slot and total counts can be laid out
+ * over the days; it is spread evenly instead of front-loading day 1.
+ *
+ * <p>The choices are kept per item for reconstruction, one bit for each state
+ * the item can reach, so memory grows with the number of items; requests with
+ * more than travelbuddy.optimize.maxItems items left after pruning are refused.
+ */
+public class ItineraryOptimizer {
+
+    private static final double UNREACHABLE = Double.NEGATIVE_INFINITY;
+
+    private final int budgetSteps = Math.max(1, AppConfig.getInt("travelbuddy.optimize.budgetSteps", 1000));
+    private final int maxItems = AppConfig.getInt("travelbuddy.optimize.maxItems", 500);
+
+    /**
+     * @param perDay   maximum activities per day
+     * @param slots    number of time slots per day (of the candidate index)
+     * @param deadline checked after every item; the search gives up once it expires
+     * @return plan[day][slot], a candidate position or -1, or null if the deadline passed
+     * @throws IllegalArgumentException if more than travelbuddy.optimize.maxItems items are left after pruning
+     */
+    public int[][] plan(CityCandidates candidates, boolean[] typeMask, int days, int perDay, int slots,
+            double budget, Deadline deadline) {
+        int total = Math.min(perDay, slots) * days;
+        int cells = budgetSteps;
+        double unit = budget / cells;
+
+        // Group 0..slots-1 holds activities of that slot, group `slots` those fitting any slot
+        List<List<Item>> groups = new ArrayList<>();
+        for (int g = 0; g <= slots; g++) {
+            groups.add(new ArrayList<>());
+        }
+        List<int[]> fenwicks = new ArrayList<>();
+        for (int g = 0; g <= slots; g++) {
+            fenwicks.add(new int[cells + 2]);
+        }
+        // Positions are sorted by rating desc then cost asc, so every earlier item rates at least as high
+        for (int position = 0; position < candidates.size(); position++) {
+            int slot = candidates.getSlot(position);
+            double cost = candidates.getCost(position);
+            double rating = candidates.getRating(position);
+            if (slot == CityCandidates.NO_SLOT || !(rating > 0) || !(cost <= budget)
+                    || !candidates.acceptsType(typeMask, position)) {
+                continue;
+            }
+            int group = slot == CityCandidates.ANY_SLOT ? slots : slot;
+            int capacity = group == slots ? total : Math.min(days, total);
+            int weight = cost <= 0 ? 0 : Math.min(cells, (int) Math.ceil(cost / unit));
+            int[] fenwick = fenwicks.get(group);
+            if (prefixCount(fenwick, weight) < capacity) {
+                groups.get(group).add(new Item(position, weight, rating));
+            }
+            addCount(fenwick, weight);
+        }
+        int itemCount = groups.stream().mapToInt(List::size).sum();
+        if (itemCount > maxItems) {
+            throw new IllegalArgumentException("Too many candidate activities to optimize (" + itemCount
+                    + ", at most " + maxItems + "); narrow the activity types or plan without optimize");
+        }
+
+        int width = cells + 1;
+        double[] best = new double[(total + 1) * width];
+        Arrays.fill(best, UNREACHABLE);
+        Arrays.fill(best, 0, width, 0.0);
+        int reachable = 0;
+
+        List<Decisions[]> groupTakes = new ArrayList<>();
+        List<byte[]> groupCounts = new ArrayList<>();
+        int[] groupSpans = new int[slots];
+        for (int g = 0; g < slots; g++) {
+            List<Item> items = groups.get(g);
+            int cap = Math.min(Math.min(days, total), items.size());
+            int limit = Math.min(total, reachable + cap);
+            int depth = cap + 1;
+            double[] table = new double[(limit + 1) * depth * width];
+            Arrays.fill(table, UNREACHABLE);
+            for (int t = 0; t <= reachable; t++) {
+                System.arraycopy(best, t * width, table, (t * depth) * width, width);
+            }
+            // Only the m items of this group add to the count, so t - m stays within [0, reachable]
+            int span = reachable + 1;
+            Decisions[] takes = new Decisions[items.size()];
+            for (int k = 0; k < items.size(); k++) {
+                Item item = items.get(k);
+                int taking = Math.min(cap, k + 1);
+                Decisions taken = new Decisions(taking * span, item.weight, cells);
+                // Row m reads row m - 1, which is updated after it
+                for (int m = taking; m >= 1; m--) {
+                    for (int d = Math.min(reachable, limit - m); d >= 0; d--) {
+                        int t = m + d;
+                        int to = (t * depth + m) * width;
+                        int from = ((t - 1) * depth + m - 1) * width;
+                        for (int b = cells; b >= item.weight; b--) {
+                            double candidate = table[from + b - item.weight] + item.rating;
+                            if (candidate > table[to + b]) {
+                                table[to + b] = candidate;
+                                taken.set((m - 1) * span + d, b);
+                            }
+                        }
+                    }
+                }
+                takes[k] = taken;
+                if (deadline.isExpired()) {
+                    return null;
+                }
+            }
+            byte[] counts = new byte[(total + 1) * width];
+            for (int t = 0; t <= limit; t++) {
+                for (int b = 0; b < width; b++) {
+                    double value = UNREACHABLE;
+                    for (int m = 0; m <= Math.min(t, cap); m++) {
+                        double candidate = table[(t * depth + m) * width + b];
+                        if (candidate > value) {
+                            value = candidate;
+                            counts[t * width + b] = (byte) m;
+                        }
+                    }
+                    best[t * width + b] = value;
+                }
+            }
+            reachable = limit;
+            groupSpans[g] = span;
+            groupTakes.add(takes);
+            groupCounts.add(counts);
+        }
+
+        List<Item> flexible = groups.get(slots);
+        Decisions[] flexibleTakes = new Decisions[flexible.size()];
+        for (int k = 0; k < flexible.size(); k++) {
+            Item item = flexible.get(k);
+            reachable = Math.min(total, reachable + 1);
+            Decisions taken = new Decisions(reachable, item.weight, cells);
+            for (int t = reachable; t >= 1; t--) {
+                int to = t * width;
+                int from = (t - 1) * width;
+                for (int b = cells; b >= item.weight; b--) {
+                    double candidate = best[from + b - item.weight] + item.rating;
+                    if (candidate > best[to + b]) {
+                        best[to + b] = candidate;
+                        taken.set(t - 1, b);
+                    }
+                }
+            }
+            flexibleTakes[k] = taken;
+            if (deadline.isExpired()) {
+                return null;
+            }
+        }
+
+        // Walk the decisions back from the best full-budget state
+        int t = 0;
+        for (int count = 1; count <= total; count++) {
+            if (best[count * width + cells] > best[t * width + cells]) {
+                t = count;
+            }
+        }
+        int b = cells;
+        List<Integer> anySlot = new ArrayList<>();
+        for (int k = flexible.size() - 1; k >= 0; k--) {
+            if (t >= 1 && flexibleTakes[k].isSet(t - 1, b)) {
+                anySlot.add(0, flexible.get(k).position);
+                b -= flexible.get(k).weight;
+                t--;
+            }
+        }
+        List<List<Integer>> bySlot = new ArrayList<>();
+        for (int g = 0; g < slots; g++) {
+            bySlot.add(new ArrayList<>());
+        }
+        for (int g = slots - 1; g >= 0; g--) {
+            List<Item> items = groups.get(g);
+            int span = groupSpans[g];
+            int m = groupCounts.get(g)[t * width + b];
+            Decisions[] takes = groupTakes.get(g);
+            for (int k = items.size() - 1; k >= 0 && m > 0; k--) {
+                if (takes[k].isSet((m - 1) * span + t - m, b)) {
+                    bySlot.get(g).add(0, items.get(k).position);
+                    b -= items.get(k).weight;
+                    t--;
+                    m--;
+                }
+            }
+        }
+
+        // Slot-free activities take the free places, then everything is dealt round-robin over the days
+        for (int g = 0; g < slots && !anySlot.isEmpty(); g++) {
+            while (bySlot.get(g).size() < days && !anySlot.isEmpty()) {
+                bySlot.get(g).add(anySlot.remove(0));
+            }
+        }
+        int[][] plan = new int[days][slots];
+        for (int[] day : plan) {
+            Arrays.fill(day, -1);
+        }
+        int next = 0;
+        for (int g = 0; g < slots; g++) {
+            for (int position : bySlot.get(g)) {
+                plan[next % days][g] = position;
+                next++;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Number of earlier items with a weight of at most weight (Fenwick tree over weights).
+     */
+    private static int prefixCount(int[] fenwick, int weight) {
+        int count = 0;
+        for (int i = weight + 1; i > 0; i -= i & -i) {
+            count += fenwick[i];
+        }
+        return count;
+    }
+
+    private static void addCount(int[] fenwick, int weight) {
+        for (int i = weight + 1; i < fenwick.length; i += i & -i) {
+            fenwick[i]++;
+        }
+    }
+
+    /**
+     * The states one item improved: a bit per row and budget cell it can reach,
+     * i.e. budgets from its weight up.
+     */
+    private static final class Decisions {
+
+        private final long[] bits;
+        private final int rows;
+        private final int weight;
+        private final int rowBits;
+
+        Decisions(int rows, int weight, int cells) {
+            this.rows = rows;
+            this.weight = weight;
+            this.rowBits = cells - weight + 1;
+            this.bits = new long[(int) (((long) rows * rowBits + 63) >>> 6)];
+        }
+
+        void set(int row, int b) {
+            int index = row * rowBits + b - weight;
+            bits[index >>> 6] |= 1L << index;
+        }
+
+        boolean isSet(int row, int b) {
+            if (row < 0 || row >= rows || b < weight) {
+                return false;
+            }
+            int index = row * rowBits + b - weight;
+            return (bits[index >>> 6] & (1L << index)) != 0;
+        }
+    }
+
+    private static final class Item {
+
+        final int position;
+        final int weight;
+        final double rating;
+
+        Item(int position, int weight, double rating) {
+            this.position = position;
+            this.weight = weight;
+            this.rating = rating;
+        }
+    }
+}
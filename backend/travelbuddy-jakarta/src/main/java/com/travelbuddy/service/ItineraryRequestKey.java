@@ -0,0 +1,77 @@
+package com.travelbuddy.service;
+
+import com.travelbuddy.model.ItineraryRequest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Canonical form of an itinerary request: lower-cased city and preference
+ * (balanced when absent), the set of lower-cased types, budget, duration and
+ * mode. Requests that differ only in case, type order or time limit are equal.
+ */
+final class ItineraryRequestKey {
+
+    private final String city;
+    private final String preference;
+    private final Set<String> types;
+    private final double budget;
+    private final int duration;
+    private final boolean optimize;
+
+    /**
+     * @param request a request with a city
+     */
+    ItineraryRequestKey(ItineraryRequest request) {
+        this.city = request.getCity().toLowerCase(Locale.ROOT);
+        this.preference = request.getPreference() != null ? request.getPreference().toLowerCase() : "balanced";
+        List<String> requested = request.getActivityTypes();
+        if (requested == null || requested.isEmpty()) {
+            this.types = Collections.emptySet();
+        } else {
+            Set<String> sorted = new TreeSet<>();
+            for (String type : requested) {
+                sorted.add(type.toLowerCase());
+            }
+            this.types = sorted;
+        }
+        this.budget = request.getBudget();
+        this.duration = request.getDuration();
+        this.optimize = request.isOptimize();
+    }
+
+    String getCity() {
+        return city;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ItineraryRequestKey)) {
+            return false;
+        }
+        ItineraryRequestKey other = (ItineraryRequestKey) o;
+        return duration == other.duration
+                && optimize == other.optimize
+                && Double.compare(budget, other.budget) == 0
+                && city.equals(other.city)
+                && preference.equals(other.preference)
+                && types.equals(other.types);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(city, preference, types, budget, duration, optimize);
+    }
+
+    @Override
+    public String toString() {
+        return city + "/" + preference + "/" + types + "/" + budget + "/" + duration + (optimize ? "/optimize" : "");
+    }
+}
@@ -1,5 +1,6 @@
 package com.travelbuddy.service;
 
+import com.travelbuddy.config.AppConfig;
 import com.travelbuddy.model.*;
 import com.travelbuddy.repository.ActivityRepository;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -8,7 +9,14 @@ import jakarta.inject.Inject;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Service for building itineraries using a rule-based algorithm.
@@ -17,7 +25,7 @@ import java.util.stream.Collectors;
 public class ItineraryService {
 
     private static ItineraryService instance;
-    private ActivityRepository activityRepository = ActivityRepository.getInstance();
+    private final ActivityRepository activityRepository;
 
     public static synchronized ItineraryService getInstance() {
         if (instance == null) {
@@ -26,6 +34,19 @@ public class ItineraryService {
         return instance;
     }
 
+    public ItineraryService() {
+        this(ActivityRepository.getInstance());
+    }
+
+    /**
+     * A service planning from activityRepository instead of the shared one, e.g. in tests.
+     */
+    public ItineraryService(ActivityRepository activityRepository) {
+        this.activityRepository = activityRepository;
+        this.candidateIndex = new ActivityCandidateIndex(activityRepository, TIME_SLOTS);
+        this.itineraryCache = new ItineraryCache(activityRepository);
+    }
+
     // Time slots configuration
     private static final String[] TIME_SLOTS = { "morning", "afternoon", "evening" };
     private static final Map<String, String[]> TIME_RANGES = Map.of(
@@ -33,6 +54,45 @@ public class ItineraryService {
             "afternoon", new String[] { "14:00", "18:00" },
             "evening", new String[] { "19:00", "22:00" });
 
+    private final ActivityCandidateIndex candidateIndex;
+    private final ItineraryCache itineraryCache;
+    // Identical requests computing at the same time share one computation; partial or fallback results are not shared
+    private final SingleFlight<ItineraryRequestKey, Itinerary> inFlight = new SingleFlight<>(
+            AppConfig.getInt("travelbuddy.singleflight.maxWaiters", 1000),
+            itinerary -> !itinerary.isPartial() && !itinerary.isFallback(),
+            itinerary -> ItineraryCache.restamp(itinerary, itinerary.getCity()));
+    private final ItineraryOptimizer optimizer = new ItineraryOptimizer();
+    private final ItineraryBeamSearch beamSearch = new ItineraryBeamSearch();
+    private final int defaultBeamWidth = AppConfig.getInt("travelbuddy.alternatives.beamWidth", 16);
+    private final long optimizeTimeLimitMillis = AppConfig.getLong("travelbuddy.optimize.timeLimitMs", 500);
+
+    // Per-request deadline: the client's timeoutMs, capped, or the server default
+    private final long defaultTimeoutMillis = AppConfig.getLong("travelbuddy.request.timeoutMs", 5_000);
+    private final long maxTimeoutMillis = AppConfig.getLong("travelbuddy.request.maxTimeoutMs", 30_000);
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    // Batch evaluation: bounded pool, overall deadline and maximum size per batch
+    private final int batchMaxRequests = AppConfig.getInt("travelbuddy.batch.maxRequests", 1000);
+    private final long batchTimeoutMillis = AppConfig.getLong("travelbuddy.batch.timeoutMs", 10_000);
+    private final ForkJoinPool batchPool = new ForkJoinPool(
+            Math.max(1, AppConfig.getInt("travelbuddy.batch.parallelism", Runtime.getRuntime().availableProcessors())),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("itinerary-batch-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+
+    private static final int DEFAULT_ALTERNATIVES = 3;
+    private static final int MAX_ALTERNATIVES = 10;
+    private static final int MAX_BEAM_WIDTH = 256;
+    private static final int MAX_LEGS = 14;
+    private static final int MAX_DURATION = 14;
+    private static final long BATCH_GRACE_MILLIS = 100;
+
+    // Streamed itineraries are not held in memory, so they may be longer
+    private final int maxStreamDays = Math.max(MAX_DURATION, AppConfig.getInt("travelbuddy.stream.maxDays", 90));
+
     // Activities per day based on preference
     private static final Map<String, Integer> ACTIVITIES_PER_DAY = Map.of(
             "relaxed", 2,
@@ -42,100 +102,846 @@ public class ItineraryService {
     /**
      * Build an itinerary based on the user's request.
      * Uses a rule-based algorithm (no AI).
+     * Results are cached; see {@link ItineraryCache}.
      */
     public Itinerary buildItinerary(ItineraryRequest request) {
-        // Validate request
-        if (request.getCity() == null || request.getCity().isEmpty()) {
-            return new Itinerary(false, "City is required");
+        return buildItinerary(request, deadline(request.getTimeoutMs()));
+    }
+
+    /**
+     * Build an itinerary, stopping when deadline expires. A plan cut short keeps
+     * the days planned so far and is flagged partial (and not cached).
+     * Concurrent identical requests that miss the cache share one computation
+     * (see {@link SingleFlight}), whether or not the cache is enabled.
+     */
+    public Itinerary buildItinerary(ItineraryRequest request, Deadline deadline) {
+        return itineraryCache.get(request, r -> r.getCity() == null ? computeItinerary(r, deadline)
+                : inFlight.execute(new ItineraryRequestKey(r), deadline, () -> computeItinerary(r, deadline)));
+    }
+
+    /**
+     * Deadline for a request asking for timeoutMillis, 0 for the server default
+     * (travelbuddy.request.timeoutMs); requests cannot exceed travelbuddy.request.maxTimeoutMs.
+     */
+    public Deadline deadline(long timeoutMillis) {
+        return Deadline.after(timeoutMillis > 0 ? Math.min(timeoutMillis, maxTimeoutMillis) : defaultTimeoutMillis);
+    }
+
+    /**
+     * Build one itinerary per request, evaluated concurrently on a bounded pool
+     * (travelbuddy.batch.parallelism, default one thread per core).
+     * Results are in request order. A request that fails or is still pending when
+     * the batch deadline (travelbuddy.batch.timeoutMs) passes yields an
+     * unsuccessful itinerary carrying the reason; the others are unaffected.
+     * Requests still computing at the deadline stop on their own.
+     */
+    public List<Itinerary> buildItineraries(List<ItineraryRequest> requests) {
+        return buildItineraries(requests, Deadline.after(batchTimeoutMillis));
+    }
+
+    private List<Itinerary> buildItineraries(List<ItineraryRequest> requests, Deadline batchDeadline) {
+        if (requests == null || requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Itinerary> results = new ArrayList<>(requests.size());
+        if (requests.size() > batchMaxRequests) {
+            for (int i = 0; i < requests.size(); i++) {
+                results.add(new Itinerary(false, "Batch exceeds " + batchMaxRequests + " requests"));
+            }
+            return results;
+        }
+
+        List<ForkJoinTask<Itinerary>> tasks = new ArrayList<>(requests.size());
+        for (ItineraryRequest request : requests) {
+            tasks.add(batchPool.submit(() -> buildBatchItem(request, batchDeadline)));
+        }
+        for (ForkJoinTask<Itinerary> task : tasks) {
+            try {
+                // Items stop on their own at the deadline; the grace lets them hand in their partial result
+                results.add(task.get(batchDeadline.remainingMillis() + BATCH_GRACE_MILLIS, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                // Not interrupted; a task that has not started yet is simply skipped
+                task.cancel(false);
+                results.add(new Itinerary(false, "Error: batch deadline exceeded"));
+            } catch (ExecutionException e) {
+                results.add(new Itinerary(false, "Error: " + e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(false);
+                results.add(new Itinerary(false, "Error: interrupted"));
+            }
+        }
+        return results;
+    }
+
+    private Itinerary buildBatchItem(ItineraryRequest request, Deadline batchDeadline) {
+        if (request == null) {
+            return new Itinerary(false, "Request is required");
+        }
+        try {
+            long timeoutMillis = request.getTimeoutMs() > 0 ? Math.min(request.getTimeoutMs(), maxTimeoutMillis)
+                    : defaultTimeoutMillis;
+            return buildItinerary(request, batchDeadline.atMost(timeoutMillis));
+        } catch (RuntimeException e) {
+            System.err.println("Error building itinerary: " + e.getMessage());
+            return new Itinerary(false, "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Build an itinerary day by day, handing each day to sink as soon as it is
+     * planned instead of collecting the trip in memory, so trips may last up to
+     * travelbuddy.stream.maxDays (default 90) days. Days are the ones the greedy
+     * mode of {@link #buildItinerary} picks; optimize is ignored, since the
+     * budget-optimal plan needs the whole trip at once. Days without activities
+     * are skipped, as in a built itinerary. Streaming stops after the day during
+     * which the request's deadline expires; the totals are then flagged partial.
+     *
+     * @return the trip's totals without its days, or an unsuccessful itinerary
+     *         if the request is invalid, in which case sink is never called
+     */
+    public Itinerary streamItinerary(ItineraryRequest request, Consumer<ItineraryDay> sink) {
+        return streamItinerary(request, deadline(request.getTimeoutMs()), sink);
+    }
+
+    /**
+     * Streamed itinerary (see above) that stops when deadline expires.
+     */
+    public Itinerary streamItinerary(ItineraryRequest request, Deadline deadline, Consumer<ItineraryDay> sink) {
+        Itinerary rejection = checkStreamRequest(request);
+        if (rejection != null) {
+            return rejection;
         }
-        if (request.getDuration() <= 0 || request.getDuration() > 14) {
-            return new Itinerary(false, "Duration must be between 1 and 14 days");
+        Itinerary summary = planDays(request, deadline, 1, request.getDuration(), sink);
+        if (!summary.isPartial()) {
+            summary.setMessage("Itinerary generated successfully");
+        }
+        return summary;
+    }
+
+    /**
+     * Streams days firstDay to lastDay of a valid request's greedy plan. The days
+     * before the window are still planned, as they decide which activities and
+     * how much budget are left, but without building them or checking the
+     * deadline; planning stops after lastDay.
+     *
+     * @return the window's totals and the budget remaining after it
+     */
+    private Itinerary planDays(ItineraryRequest request, Deadline deadline, int firstDay, int lastDay,
+            Consumer<ItineraryDay> sink) {
+        ActivityCandidateIndex.CityCandidates candidates = candidateIndex.forCity(request.getCity());
+        boolean[] typeMask = candidates.typeMask(request.getActivityTypes());
+
+        Itinerary summary = new Itinerary(request.getCity(), request.getDuration());
+        GreedyPlanner planner = new GreedyPlanner(candidates, typeMask, activitiesPerDay(request), request.getBudget());
+        for (int day = 1; day < firstDay; day++) {
+            planner.nextDay();
+        }
+        LocalDate startDate = LocalDate.now();
+        double totalCost = 0;
+        int totalActivities = 0;
+        for (int day = firstDay; day <= lastDay; day++) {
+            ItineraryDay itineraryDay = toDay(candidates, day, startDate, planner.nextDay());
+            if (itineraryDay.getActivities().size() > 0) {
+                totalCost += itineraryDay.getDayCost();
+                totalActivities += itineraryDay.getActivities().size();
+                sink.accept(itineraryDay);
+            }
+            if (day < lastDay && deadline.isExpired()) {
+                summary.setPartial(true);
+                summary.setMessage(stopped(deadline, day, lastDay));
+                recordStopped(deadline);
+                break;
+            }
+        }
+        summary.setTotalCost(totalCost);
+        summary.setTotalActivities(totalActivities);
+        summary.setRemainingBudget(planner.remainingBudget);
+        return summary;
+    }
+
+    /**
+     * @return an unsuccessful itinerary explaining why request cannot be streamed, or null if it can
+     */
+    public Itinerary checkStreamRequest(ItineraryRequest request) {
+        ActivityCandidateIndex.CityCandidates candidates = candidateIndex.forCity(request.getCity());
+        return validate(request, candidates, candidates.typeMask(request.getActivityTypes()), maxStreamDays);
+    }
+
+    /**
+     * A window of the days of a streamed itinerary (see {@link #streamItinerary}),
+     * for clients that fetch a long trip in chunks. Only the window's days are
+     * built and planning stops after its last day; the totals are those of the
+     * window, the remaining budget what is left after it.
+     * Each window is planned afresh from the city's current activities, so
+     * windows fetched across an edit of those activities are not consistent:
+     * an activity may then repeat, or be missing, between two windows.
+     *
+     * @param firstDay first day number of the window, from 1
+     * @param dayCount days in the window, at most 14
+     */
+    public Itinerary buildItineraryDays(ItineraryRequest request, int firstDay, int dayCount) {
+        if (firstDay < 1 || dayCount < 1 || dayCount > MAX_DURATION) {
+            return new Itinerary(false, "First day must be positive and day count between 1 and " + MAX_DURATION);
+        }
+        Itinerary rejection = checkStreamRequest(request);
+        if (rejection != null) {
+            return rejection;
+        }
+        int lastDay = Math.min(firstDay + dayCount - 1, request.getDuration());
+        List<ItineraryDay> days = new ArrayList<>();
+        Itinerary window = planDays(request, deadline(request.getTimeoutMs()), firstDay, lastDay, days::add);
+        days.forEach(window::addDay);
+        if (!window.isPartial()) {
+            window.setMessage(firstDay > lastDay ? "Trip has only " + request.getDuration() + " days"
+                    : "Days " + firstDay + " to " + lastDay + " of " + request.getDuration() + " generated successfully");
+        }
+        return window;
+    }
+
+    /**
+     * Plan a trip over several cities: each leg is solved as its own itinerary
+     * request (concurrently, and cached like any other request), then the legs
+     * are joined into one itinerary with continuous day numbers.
+     * Leg durations and budgets left at 0 share what the specified legs leave of
+     * the trip's totals: every such leg gets at least a day, further days go by
+     * the quality (summed rating) of the city's best matching activities, and
+     * the budget by what each leg's best activities would cost for its days.
+     */
+    public Itinerary buildMultiCityItinerary(MultiCityRequest request) {
+        return buildMultiCityItinerary(request, deadline(request.getTimeoutMs()));
+    }
+
+    /**
+     * Multi-city itinerary whose legs all stop when deadline expires; if any leg
+     * is cut short the whole itinerary is flagged partial.
+     */
+    public Itinerary buildMultiCityItinerary(MultiCityRequest request, Deadline deadline) {
+        List<ItineraryLeg> legs = request.getLegs();
+        if (legs == null || legs.isEmpty()) {
+            return new Itinerary(false, "At least one leg is required");
+        }
+        if (legs.size() > MAX_LEGS) {
+            return new Itinerary(false, "At most " + MAX_LEGS + " legs are supported");
         }
         if (request.getBudget() <= 0) {
             return new Itinerary(false, "Budget must be positive");
         }
+        ItineraryRequest template = new ItineraryRequest(null, 0, 0, request.getActivityTypes(), request.getPreference());
+        int perDay = activitiesPerDay(template);
 
-        // Get available activities for the city
-        List<Activity> availableActivities = activityRepository.findByCity(request.getCity());
+        int fixedDays = 0;
+        int autoDayLegs = 0;
+        double fixedBudget = 0;
+        int autoBudgetLegs = 0;
+        List<ActivityCandidateIndex.CityCandidates> cityCandidates = new ArrayList<>();
+        List<boolean[]> typeMasks = new ArrayList<>();
+        for (int i = 0; i < legs.size(); i++) {
+            ItineraryLeg leg = legs.get(i);
+            if (leg == null || leg.getCity() == null || leg.getCity().isEmpty()) {
+                return new Itinerary(false, "Leg " + (i + 1) + ": City is required");
+            }
+            if (leg.getDuration() < 0 || leg.getBudget() < 0) {
+                return new Itinerary(false, "Leg " + (i + 1) + " (" + leg.getCity() + "): Duration and budget cannot be negative");
+            }
+            fixedDays += leg.getDuration();
+            autoDayLegs += leg.getDuration() == 0 ? 1 : 0;
+            fixedBudget += leg.getBudget();
+            autoBudgetLegs += leg.getBudget() == 0 ? 1 : 0;
+            ActivityCandidateIndex.CityCandidates candidates = candidateIndex.forCity(leg.getCity());
+            boolean[] typeMask = candidates.typeMask(request.getActivityTypes());
+            if (candidates.size() == 0) {
+                return new Itinerary(false, "Leg " + (i + 1) + " (" + leg.getCity() + "): No activities found for city: " + leg.getCity());
+            }
+            if (!ActivityCandidateIndex.CityCandidates.acceptsAny(typeMask)) {
+                return new Itinerary(false, "Leg " + (i + 1) + " (" + leg.getCity() + "): No activities match the selected types");
+            }
+            cityCandidates.add(candidates);
+            typeMasks.add(typeMask);
+        }
 
-        if (availableActivities.isEmpty()) {
-            return new Itinerary(false, "No activities found for city: " + request.getCity());
+        int totalDays = request.getDuration() > 0 ? request.getDuration() : fixedDays;
+        if (totalDays <= 0 || totalDays > MAX_DURATION) {
+            return new Itinerary(false, "Duration must be between 1 and " + MAX_DURATION + " days");
+        }
+        if (fixedDays + autoDayLegs > totalDays) {
+            return new Itinerary(false, "Leg durations exceed the trip duration");
+        }
+        if (autoDayLegs == 0 && fixedDays != totalDays) {
+            return new Itinerary(false, "Leg durations must add up to the trip duration");
+        }
+        if (fixedBudget > request.getBudget()) {
+            return new Itinerary(false, "Leg budgets exceed the trip budget");
+        }
+        if (autoBudgetLegs > 0 && fixedBudget >= request.getBudget()) {
+            return new Itinerary(false, "Leg budgets leave nothing for the legs without a budget");
         }
 
-        // Filter by activity types if specified
-        if (request.getActivityTypes() != null && !request.getActivityTypes().isEmpty()) {
-            List<String> types = request.getActivityTypes().stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList());
-            availableActivities = availableActivities.stream()
-                    .filter(a -> types.contains(a.getType().toLowerCase()))
-                    .collect(Collectors.toList());
+        // Days: one per auto leg, the rest by largest remainder over candidate quality
+        int[] days = new int[legs.size()];
+        double[] quality = new double[legs.size()];
+        for (int i = 0; i < legs.size(); i++) {
+            days[i] = legs.get(i).getDuration();
+            if (days[i] == 0) {
+                days[i] = 1;
+                quality[i] = bestCandidates(cityCandidates.get(i), typeMasks.get(i), perDay * totalDays, false);
+            }
         }
+        if (Arrays.stream(quality).noneMatch(q -> q > 0)) {
+            for (int i = 0; i < legs.size(); i++) {
+                quality[i] = legs.get(i).getDuration() == 0 ? 1 : 0;
+            }
+        }
+        distribute(days, quality, totalDays - fixedDays - autoDayLegs);
 
-        if (availableActivities.isEmpty()) {
-            return new Itinerary(false, "No activities match the selected types");
+        // Budget: what the auto legs' best activities would cost for their days
+        double[] budgets = new double[legs.size()];
+        double[] spend = new double[legs.size()];
+        double spendTotal = 0;
+        int spendDays = 0;
+        for (int i = 0; i < legs.size(); i++) {
+            budgets[i] = legs.get(i).getBudget();
+            if (budgets[i] == 0) {
+                spend[i] = bestCandidates(cityCandidates.get(i), typeMasks.get(i), perDay * days[i], true);
+                spendTotal += spend[i];
+                spendDays += spend[i] > 0 ? days[i] : 0;
+            }
+        }
+        // A leg whose best activities are free still needs a budget; give it the others' spend per day
+        for (int i = 0; i < legs.size() && spendTotal > 0; i++) {
+            if (legs.get(i).getBudget() == 0 && spend[i] == 0) {
+                spend[i] = spendTotal / spendDays * days[i];
+            }
         }
+        spendTotal = Arrays.stream(spend).sum();
+        double remainingBudget = request.getBudget() - fixedBudget;
+        for (int i = 0; i < legs.size(); i++) {
+            if (legs.get(i).getBudget() == 0) {
+                double share = spendTotal > 0 ? spend[i] / spendTotal : 1.0 / autoBudgetLegs;
+                budgets[i] = remainingBudget * share;
+            }
+        }
+
+        List<ItineraryRequest> legRequests = new ArrayList<>();
+        for (int i = 0; i < legs.size(); i++) {
+            ItineraryRequest legRequest = new ItineraryRequest(legs.get(i).getCity(), budgets[i], days[i],
+                    request.getActivityTypes(), request.getPreference());
+            legRequest.setOptimize(request.isOptimize());
+            legRequest.setTimeoutMs(deadline.remainingMillis());
+            legRequests.add(legRequest);
+        }
+        List<Itinerary> results = buildItineraries(legRequests, deadline.atMost(batchTimeoutMillis));
 
-        // Sort by rating (best first) and cost (cheaper first for equal ratings)
-        availableActivities.sort((a, b) -> {
-            int ratingCompare = Double.compare(b.getRating(), a.getRating());
-            if (ratingCompare == 0) {
-                return Double.compare(a.getCost(), b.getCost());
+        List<String> cities = new ArrayList<>();
+        legs.forEach(leg -> cities.add(leg.getCity()));
+        Itinerary itinerary = new Itinerary(String.join(" → ", cities), totalDays);
+        LocalDate startDate = LocalDate.now();
+        int dayOffset = 0;
+        String partialLeg = null;
+        for (int i = 0; i < legs.size(); i++) {
+            Itinerary result = results.get(i);
+            if (!result.isSuccess()) {
+                return new Itinerary(false, "Leg " + (i + 1) + " (" + legs.get(i).getCity() + "): " + result.getMessage());
             }
-            return ratingCompare;
-        });
+            if (result.isPartial() && partialLeg == null) {
+                partialLeg = "Leg " + (i + 1) + " (" + legs.get(i).getCity() + "): " + result.getMessage();
+            }
+            for (ItineraryDay day : result.getDays()) {
+                int dayNumber = dayOffset + day.getDayNumber();
+                ItineraryDay merged = new ItineraryDay(dayNumber,
+                        startDate.plusDays(dayNumber - 1).format(DateTimeFormatter.ISO_LOCAL_DATE));
+                merged.setCity(legs.get(i).getCity());
+                day.getActivities().forEach(merged::addActivity);
+                itinerary.addDay(merged);
+            }
+            dayOffset += days[i];
+        }
+        if (itinerary.getTotalCost() > request.getBudget()) {
+            return new Itinerary(false, "Legs exceed the trip budget");
+        }
 
-        // Create itinerary
-        Itinerary itinerary = new Itinerary(request.getCity(), request.getDuration());
+        itinerary.setRemainingBudget(request.getBudget() - itinerary.getTotalCost());
+        itinerary.setSuccess(true);
+        itinerary.setPartial(partialLeg != null);
+        itinerary.setMessage(partialLeg != null ? partialLeg : "Multi-city itinerary generated successfully");
+        return itinerary;
+    }
+
+    /**
+     * Summed rating (or cost) of the best limit activities of a city that pass typeMask.
+     */
+    private static double bestCandidates(ActivityCandidateIndex.CityCandidates candidates, boolean[] typeMask,
+            int limit, boolean cost) {
+        double sum = 0;
+        int taken = 0;
+        for (int position = 0; position < candidates.size() && taken < limit; position++) {
+            if (candidates.getSlot(position) != ActivityCandidateIndex.CityCandidates.NO_SLOT
+                    && candidates.acceptsType(typeMask, position)) {
+                sum += cost ? Math.max(0, candidates.getCost(position)) : Math.max(0, candidates.getRating(position));
+                taken++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Add extra to the days of the legs with a weight, proportionally by largest remainder.
+     */
+    private static void distribute(int[] days, double[] weights, int extra) {
+        double weightTotal = Arrays.stream(weights).sum();
+        if (extra <= 0 || weightTotal <= 0) {
+            return;
+        }
+        double[] remainders = new double[days.length];
+        int given = 0;
+        for (int i = 0; i < days.length; i++) {
+            double exact = extra * weights[i] / weightTotal;
+            days[i] += (int) exact;
+            given += (int) exact;
+            remainders[i] = weights[i] > 0 ? exact - (int) exact : -1;
+        }
+        for (; given < extra; given++) {
+            int largest = 0;
+            for (int i = 1; i < days.length; i++) {
+                if (remainders[i] > remainders[largest]) {
+                    largest = i;
+                }
+            }
+            days[largest]++;
+            remainders[largest] = -1;
+        }
+    }
+
+    /**
+     * The count best distinct itineraries for a request, found in one beam search
+     * (see {@link ItineraryBeamSearch}) instead of count separate requests.
+     *
+     * @param count     number of alternatives, 0 for 3, at most 10
+     * @param beamWidth partial itineraries kept per slot, 0 for travelbuddy.alternatives.beamWidth
+     * @return the alternatives best first, or a single unsuccessful itinerary if the request is invalid
+     */
+    public List<Itinerary> buildAlternatives(ItineraryRequest request, int count, int beamWidth) {
+        return buildAlternatives(request, count, beamWidth, deadline(request.getTimeoutMs()));
+    }
+
+    /**
+     * Alternatives whose search stops at the first day boundary after deadline
+     * expires; the alternatives found by then are returned flagged partial.
+     */
+    public List<Itinerary> buildAlternatives(ItineraryRequest request, int count, int beamWidth, Deadline deadline) {
+        int wanted = count <= 0 ? DEFAULT_ALTERNATIVES : Math.min(count, MAX_ALTERNATIVES);
+        int width = Math.max(wanted, Math.min(beamWidth <= 0 ? defaultBeamWidth : beamWidth, MAX_BEAM_WIDTH));
 
+        ActivityCandidateIndex.CityCandidates candidates = candidateIndex.forCity(request.getCity());
+        boolean[] typeMask = candidates.typeMask(request.getActivityTypes());
+        Itinerary rejection = validate(request, candidates, typeMask, MAX_DURATION);
+        if (rejection != null) {
+            return new ArrayList<>(List.of(rejection));
+        }
+
+        List<int[][]> plans = beamSearch.search(candidates, typeMask, request.getDuration(),
+                activitiesPerDay(request), TIME_SLOTS.length, request.getBudget(), wanted, width, deadline);
+        List<Itinerary> alternatives = new ArrayList<>(plans.size());
+        for (int i = 0; i < plans.size(); i++) {
+            alternatives.add(toItinerary(request, candidates, plans.get(i),
+                    "Alternative " + (i + 1) + " of " + plans.size() + " generated successfully", deadline));
+        }
+        if (!alternatives.isEmpty() && alternatives.get(0).isPartial()) {
+            recordStopped(deadline);
+        }
+        return alternatives;
+    }
+
+    /**
+     * Re-plan an existing itinerary after edits without rebuilding it. Pinned
+     * activities, and every activity the edit does not touch, keep their day and
+     * time slot. Only the slots freed by removed activities, by a smaller budget
+     * (latest unpinned activities first) or by added days are filled again, with
+     * the greedy first-fit rule; a larger budget also opens the empty slots, and
+     * days beyond a shorter duration are dropped. Removed activities are not
+     * scheduled again. Kept activities are looked up by id, so their cost is
+     * the stored one whatever the client sent, and a day keeps at most as many
+     * as the preference allows (latest unpinned activities go first).
+     *
+     * @return the updated itinerary and the slots whose activity changed
+     */
+    public ReplanResponse replanItinerary(ReplanRequest replan) {
+        return replanItinerary(replan, deadline(replan.getRequest() != null ? replan.getRequest().getTimeoutMs() : 0));
+    }
+
+    /**
+     * Re-plan, refilling open slots until deadline expires; the deadline is
+     * checked after each day, and the days not refilled by then keep only the
+     * activities that stay, with the itinerary flagged partial.
+     */
+    public ReplanResponse replanItinerary(ReplanRequest replan, Deadline deadline) {
+        ItineraryRequest request = replan.getRequest();
+        Itinerary current = replan.getItinerary();
+        if (request == null || current == null) {
+            return new ReplanResponse(false, "Itinerary request and itinerary are required");
+        }
+        if (current.getCity() != null && request.getCity() != null && !current.getCity().equalsIgnoreCase(request.getCity())) {
+            return new ReplanResponse(false, "Itinerary city does not match the request");
+        }
+        ActivityCandidateIndex.CityCandidates candidates = candidateIndex.forCity(request.getCity());
+        boolean[] typeMask = candidates.typeMask(request.getActivityTypes());
+        Itinerary rejection = validate(request, candidates, typeMask, MAX_DURATION);
+        if (rejection != null) {
+            return new ReplanResponse(false, rejection.getMessage());
+        }
+        Set<Long> pinned = replan.getPinnedActivityIds() != null ? new HashSet<>(replan.getPinnedActivityIds()) : Set.of();
+        Set<Long> removed = replan.getRemovedActivityIds() != null ? new HashSet<>(replan.getRemovedActivityIds()) : Set.of();
+        for (Long id : pinned) {
+            if (removed.contains(id)) {
+                return new ReplanResponse(false, "Activity " + id + " is both pinned and removed");
+            }
+        }
+
+        // The current plan by day and time slot
+        int days = request.getDuration();
+        int oldDays = Math.min(Math.max(current.getTotalDays(), 0), MAX_DURATION);
+        ScheduledActivity[][] before = new ScheduledActivity[MAX_DURATION][TIME_SLOTS.length];
+        Set<Long> scheduled = new HashSet<>();
+        for (ItineraryDay day : current.getDays()) {
+            int d = day.getDayNumber() - 1;
+            if (d < 0 || d >= before.length) {
+                return new ReplanResponse(false, "Invalid day number: " + day.getDayNumber());
+            }
+            oldDays = Math.max(oldDays, d + 1);
+            for (ScheduledActivity activity : day.getActivities()) {
+                int slot = slotOf(activity.getStartTime());
+                if (slot < 0) {
+                    return new ReplanResponse(false, "Day " + (d + 1) + ": unknown start time " + activity.getStartTime());
+                }
+                if (before[d][slot] != null) {
+                    return new ReplanResponse(false, "Day " + (d + 1) + ": two activities in the " + TIME_SLOTS[slot]);
+                }
+                before[d][slot] = activity;
+                scheduled.add(activity.getActivityId());
+            }
+        }
+        for (Long id : pinned) {
+            if (!scheduled.contains(id)) {
+                return new ReplanResponse(false, "Pinned activity " + id + " is not in the itinerary");
+            }
+        }
+
+        // Keep what the edit does not touch; every activity seen stays out of the refill
+        int activitiesPerDay = activitiesPerDay(request);
+        double oldCost = 0;
+        ScheduledActivity[][] after = new ScheduledActivity[days][TIME_SLOTS.length];
+        boolean[][] open = new boolean[days][TIME_SLOTS.length];
+        int[] counts = new int[days];
+        BitSet used = new BitSet(candidates.size());
+        double spent = 0;
+        for (int d = 0; d < Math.max(oldDays, days); d++) {
+            for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+                ScheduledActivity activity = before[d][slot];
+                if (activity == null) {
+                    if (d < days) {
+                        open[d][slot] = d >= oldDays;
+                    }
+                    continue;
+                }
+                int position = candidates.positionOf(activity.getActivityId());
+                if (position >= 0) {
+                    used.set(position);
+                    oldCost += candidates.getCost(position);
+                }
+                if (d >= days) {
+                    if (pinned.contains(activity.getActivityId())) {
+                        return new ReplanResponse(false, "Pinned activity " + activity.getActivityId()
+                                + " is on day " + (d + 1) + ", beyond the new duration");
+                    }
+                } else if (removed.contains(activity.getActivityId())) {
+                    open[d][slot] = true;
+                } else if (position < 0) {
+                    return new ReplanResponse(false, "Unknown activity " + activity.getActivityId()
+                            + " on day " + (d + 1) + "; remove it to re-plan");
+                } else {
+                    after[d][slot] = schedule(candidates.get(position), slot);
+                    spent += candidates.getCost(position);
+                    counts[d]++;
+                }
+            }
+        }
+        // A larger budget than before (at stored costs) also opens the empty slots
+        if (request.getBudget() > oldCost + Math.max(0, current.getRemainingBudget())) {
+            for (int d = 0; d < Math.min(oldDays, days); d++) {
+                for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+                    open[d][slot] |= before[d][slot] == null;
+                }
+            }
+        }
+
+        // More activities than the preference allows: free the latest unpinned ones of that day
+        for (int d = 0; d < days; d++) {
+            for (int slot = TIME_SLOTS.length - 1; slot >= 0 && counts[d] > activitiesPerDay; slot--) {
+                ScheduledActivity activity = after[d][slot];
+                if (activity != null && !pinned.contains(activity.getActivityId())) {
+                    spent -= activity.getCost();
+                    after[d][slot] = null;
+                    open[d][slot] = true;
+                    counts[d]--;
+                }
+            }
+            if (counts[d] > activitiesPerDay) {
+                return new ReplanResponse(false, "Day " + (d + 1) + ": more pinned activities than the "
+                        + activitiesPerDay + " per day of the preference");
+            }
+        }
+
+        // Over budget: free the latest unpinned activities until the rest fits
+        for (int step = days * TIME_SLOTS.length - 1; step >= 0 && spent > request.getBudget(); step--) {
+            int d = step / TIME_SLOTS.length;
+            int slot = step % TIME_SLOTS.length;
+            ScheduledActivity activity = after[d][slot];
+            if (activity != null && !pinned.contains(activity.getActivityId())) {
+                spent -= activity.getCost();
+                after[d][slot] = null;
+                open[d][slot] = true;
+                counts[d]--;
+            }
+        }
+        if (spent > request.getBudget()) {
+            return new ReplanResponse(false, "Pinned activities exceed the budget");
+        }
+
+        // Refill the open slots only
+        double remainingBudget = request.getBudget() - spent;
+        int[] cursors = new int[TIME_SLOTS.length];
+        int refilledDays = 0;
+        for (int d = 0; d < days; d++) {
+            if (d > 0 && deadline.isExpired()) {
+                break;
+            }
+            refilledDays++;
+            for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+                if (!open[d][slot] || counts[d] >= activitiesPerDay) {
+                    continue;
+                }
+                int best = candidates.next(slot, cursors, used, typeMask, remainingBudget);
+                if (best >= 0) {
+                    after[d][slot] = schedule(candidates.get(best), slot);
+                    used.set(best);
+                    remainingBudget -= candidates.getCost(best);
+                    counts[d]++;
+                }
+            }
+        }
+
+        Itinerary itinerary = new Itinerary(request.getCity(), days);
+        LocalDate startDate = startDate(current);
+        List<ItineraryChange> changes = new ArrayList<>();
+        for (int d = 0; d < Math.max(oldDays, days); d++) {
+            ItineraryDay itineraryDay = new ItineraryDay(d + 1,
+                    startDate.plusDays(d).format(DateTimeFormatter.ISO_LOCAL_DATE));
+            for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+                Long oldId = before[d][slot] != null ? before[d][slot].getActivityId() : null;
+                ScheduledActivity activity = d < days ? after[d][slot] : null;
+                Long newId = activity != null ? activity.getActivityId() : null;
+                if (!Objects.equals(oldId, newId)) {
+                    changes.add(new ItineraryChange(d + 1, TIME_SLOTS[slot], oldId, newId));
+                }
+                if (activity != null) {
+                    itineraryDay.addActivity(activity);
+                }
+            }
+            if (itineraryDay.getActivities().size() > 0) {
+                itinerary.addDay(itineraryDay);
+            }
+        }
+        itinerary.setRemainingBudget(request.getBudget() - itinerary.getTotalCost());
+        itinerary.setSuccess(true);
+        itinerary.setPartial(refilledDays < days);
+        if (itinerary.isPartial()) {
+            recordStopped(deadline);
+            itinerary.setMessage(stopped(deadline, refilledDays, days));
+        } else {
+            itinerary.setMessage("Itinerary re-planned, " + changes.size() + " time slots changed");
+        }
+        return new ReplanResponse(itinerary, changes);
+    }
+
+    /**
+     * Index of the time slot starting at startTime, or -1.
+     */
+    private static int slotOf(String startTime) {
+        for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+            if (TIME_RANGES.get(TIME_SLOTS[slot])[0].equals(startTime)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Date of day 1 of an itinerary, today if it has no readable dates.
+     */
+    private static LocalDate startDate(Itinerary itinerary) {
+        for (ItineraryDay day : itinerary.getDays()) {
+            try {
+                return LocalDate.parse(day.getDate()).minusDays(day.getDayNumber() - 1);
+            } catch (RuntimeException e) {
+                // Try the next day
+            }
+        }
+        return LocalDate.now();
+    }
+
+    /**
+     * @return an unsuccessful itinerary explaining why request cannot be served, or null if it can
+     */
+    private Itinerary validate(ItineraryRequest request, ActivityCandidateIndex.CityCandidates candidates,
+            boolean[] typeMask, int maxDuration) {
+        if (request.getCity() == null || request.getCity().isEmpty()) {
+            return new Itinerary(false, "City is required");
+        }
+        if (request.getDuration() <= 0 || request.getDuration() > maxDuration) {
+            return new Itinerary(false, "Duration must be between 1 and " + maxDuration + " days");
+        }
+        if (request.getBudget() <= 0) {
+            return new Itinerary(false, "Budget must be positive");
+        }
+        if (candidates.size() == 0) {
+            return new Itinerary(false, "No activities found for city: " + request.getCity());
+        }
+        if (!ActivityCandidateIndex.CityCandidates.acceptsAny(typeMask)) {
+            return new Itinerary(false, "No activities match the selected types");
+        }
+        return null;
+    }
+
+    private static int activitiesPerDay(ItineraryRequest request) {
         String preference = request.getPreference() != null ? request.getPreference().toLowerCase() : "balanced";
-        int activitiesPerDay = ACTIVITIES_PER_DAY.getOrDefault(preference, 3);
+        return ACTIVITIES_PER_DAY.getOrDefault(preference, 3);
+    }
 
-        double remainingBudget = request.getBudget();
-        Set<Long> usedActivityIds = new HashSet<>();
-        LocalDate startDate = LocalDate.now();
+    private Itinerary computeItinerary(ItineraryRequest request, Deadline deadline) {
+        ActivityCandidateIndex.CityCandidates candidates = candidateIndex.forCity(request.getCity());
+        // Filter by activity types if specified
+        boolean[] typeMask = candidates.typeMask(request.getActivityTypes());
+        Itinerary rejection = validate(request, candidates, typeMask, MAX_DURATION);
+        if (rejection != null) {
+            return rejection;
+        }
+        int activitiesPerDay = activitiesPerDay(request);
 
-        // Build each day
-        for (int day = 1; day <= request.getDuration(); day++) {
-            ItineraryDay itineraryDay = new ItineraryDay(day,
-                    startDate.plusDays(day - 1).format(DateTimeFormatter.ISO_LOCAL_DATE));
+        String message = "Itinerary generated successfully";
+        if (request.isOptimize()) {
+            int[][] plan;
+            try {
+                plan = optimizer.plan(candidates, typeMask, request.getDuration(), activitiesPerDay,
+                        TIME_SLOTS.length, request.getBudget(), deadline.atMost(optimizeTimeLimitMillis));
+            } catch (IllegalArgumentException e) {
+                return new Itinerary(false, e.getMessage());
+            }
+            if (plan != null) {
+                return toItinerary(request, candidates, plan, "Optimized itinerary generated successfully", deadline);
+            }
+            message = "Itinerary generated successfully (" + (deadline.isExpired() ? "request time limit reached"
+                    : "optimization time limit reached") + ", greedy selection used)";
+        }
+        Itinerary itinerary = toItinerary(request, candidates,
+                greedyPlan(request, candidates, typeMask, activitiesPerDay, deadline), message, deadline);
+        // The greedy plan stands in for an optimized one only because this request ran short of time
+        itinerary.setFallback(request.isOptimize());
+        if (itinerary.isPartial()) {
+            recordStopped(deadline);
+        }
+        return itinerary;
+    }
 
+    /**
+     * First-fit selection: for each day and time slot, the best rated (then
+     * cheapest) unused activity that still fits the remaining budget.
+     * The deadline is checked after each day, so at least day 1 is planned.
+     *
+     * @return plan[day][slot], a candidate position or -1; days not reached before the deadline are null
+     */
+    private int[][] greedyPlan(ItineraryRequest request, ActivityCandidateIndex.CityCandidates candidates,
+            boolean[] typeMask, int activitiesPerDay, Deadline deadline) {
+        int[][] plan = new int[request.getDuration()][];
+        GreedyPlanner planner = new GreedyPlanner(candidates, typeMask, activitiesPerDay, request.getBudget());
+        for (int day = 0; day < request.getDuration(); day++) {
+            plan[day] = planner.nextDay();
+            if (deadline.isExpired()) {
+                break;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * The greedy selection one day at a time; its state does not grow with the trip.
+     */
+    private static final class GreedyPlanner {
+
+        private final ActivityCandidateIndex.CityCandidates candidates;
+        private final boolean[] typeMask;
+        private final int activitiesPerDay;
+        private final BitSet used;
+        private final int[] cursors = new int[TIME_SLOTS.length];
+        private double remainingBudget;
+
+        GreedyPlanner(ActivityCandidateIndex.CityCandidates candidates, boolean[] typeMask, int activitiesPerDay,
+                double budget) {
+            this.candidates = candidates;
+            this.typeMask = typeMask;
+            this.activitiesPerDay = activitiesPerDay;
+            this.used = new BitSet(candidates.size());
+            this.remainingBudget = budget;
+        }
+
+        /**
+         * @return the next day's candidate position per time slot, or -1
+         */
+        int[] nextDay() {
+            int[] day = new int[TIME_SLOTS.length];
+            Arrays.fill(day, -1);
             int activitiesAdded = 0;
 
             // Try to add activities for each time slot
-            for (String timeSlot : TIME_SLOTS) {
+            for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
                 if (activitiesAdded >= activitiesPerDay)
                     break;
 
-                // Find best available activity for this time slot
-                double currentBudget = remainingBudget;
-                Optional<Activity> bestActivity = availableActivities.stream()
-                        .filter(a -> !usedActivityIds.contains(a.getId()))
-                        .filter(a -> a.getCost() <= currentBudget)
-                        .filter(a -> a.getTimeSlot() == null ||
-                                a.getTimeSlot().equalsIgnoreCase(timeSlot) ||
-                                a.getTimeSlot().isEmpty())
-                        .findFirst();
-
-                if (bestActivity.isPresent()) {
-                    Activity activity = bestActivity.get();
-                    String[] times = TIME_RANGES.get(timeSlot);
-
-                    ScheduledActivity scheduled = new ScheduledActivity(
-                            activity.getId(),
-                            activity.getName(),
-                            times[0],
-                            times[1],
-                            activity.getCost(),
-                            activity.getType(),
-                            activity.getDescription());
-
-                    itineraryDay.addActivity(scheduled);
-                    usedActivityIds.add(activity.getId());
-                    remainingBudget -= activity.getCost();
+                // Best available activity for this time slot: candidates are sorted by rating, then cost
+                int best = candidates.next(slot, cursors, used, typeMask, remainingBudget);
+
+                if (best >= 0) {
+                    day[slot] = best;
+                    used.set(best);
+                    remainingBudget -= candidates.getCost(best);
                     activitiesAdded++;
                 }
             }
+            return day;
+        }
+    }
+
+    /**
+     * @param plan plan[day][slot], a candidate position or -1; a null day was not
+     *             planned before the deadline and makes the itinerary partial
+     */
+    private Itinerary toItinerary(ItineraryRequest request, ActivityCandidateIndex.CityCandidates candidates,
+            int[][] plan, String message, Deadline deadline) {
+        Itinerary itinerary = new Itinerary(request.getCity(), request.getDuration());
+        double remainingBudget = request.getBudget();
+        LocalDate startDate = LocalDate.now();
+
+        int plannedDays = 0;
+        for (int day = 1; day <= plan.length; day++) {
+            if (plan[day - 1] == null) {
+                continue;
+            }
+            plannedDays++;
+            ItineraryDay itineraryDay = toDay(candidates, day, startDate, plan[day - 1]);
+            for (int position : plan[day - 1]) {
+                if (position >= 0) {
+                    remainingBudget -= candidates.getCost(position);
+                }
+            }
 
             if (itineraryDay.getActivities().size() > 0) {
                 itinerary.addDay(itineraryDay);
@@ -145,11 +951,71 @@ public class ItineraryService {
         // Set final values
         itinerary.setRemainingBudget(remainingBudget);
         itinerary.setSuccess(true);
-        itinerary.setMessage("Itinerary generated successfully");
+        itinerary.setPartial(plannedDays < plan.length);
+        itinerary.setMessage(itinerary.isPartial() ? stopped(deadline, plannedDays, plan.length) : message);
 
         return itinerary;
     }
 
+    private static String stopped(Deadline deadline, int plannedDays, int days) {
+        return "Itinerary incomplete: " + (deadline.isCancelled() ? "request cancelled" : "time limit reached")
+                + " after " + plannedDays + " of " + days + " days";
+    }
+
+    private void recordStopped(Deadline deadline) {
+        (deadline.isCancelled() ? cancelled : timedOut).incrementAndGet();
+    }
+
+    private static ItineraryDay toDay(ActivityCandidateIndex.CityCandidates candidates, int day,
+            LocalDate startDate, int[] positions) {
+        ItineraryDay itineraryDay = new ItineraryDay(day,
+                startDate.plusDays(day - 1).format(DateTimeFormatter.ISO_LOCAL_DATE));
+        for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+            if (positions[slot] >= 0) {
+                itineraryDay.addActivity(schedule(candidates.get(positions[slot]), slot));
+            }
+        }
+        return itineraryDay;
+    }
+
+    private static ScheduledActivity schedule(Activity activity, int slot) {
+        String[] times = TIME_RANGES.get(TIME_SLOTS[slot]);
+        return new ScheduledActivity(
+                activity.getId(),
+                activity.getName(),
+                times[0],
+                times[1],
+                activity.getCost(),
+                activity.getType(),
+                activity.getDescription());
+    }
+
+    /**
+     * Requests cut short by their deadline or cancelled, and the deadline settings.
+     */
+    public Map<String, Object> getDeadlineMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("defaultTimeoutMs", defaultTimeoutMillis);
+        metrics.put("maxTimeoutMs", maxTimeoutMillis);
+        metrics.put("timedOut", timedOut.get());
+        metrics.put("cancelled", cancelled.get());
+        return metrics;
+    }
+
+    /**
+     * Coalescing of concurrent identical requests.
+     */
+    public Map<String, Object> getCoalescingMetrics() {
+        return inFlight.getMetrics();
+    }
+
+    /**
+     * Hit/miss/eviction counters of the itinerary cache.
+     */
+    public Map<String, Object> getCacheMetrics() {
+        return itineraryCache.getMetrics();
+    }
+
     /**
      * Get available activity types for a city.
      */
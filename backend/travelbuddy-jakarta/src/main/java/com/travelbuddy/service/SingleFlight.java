@@ -0,0 +1,135 @@
+package com.travelbuddy.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces concurrent computations of equal keys: the first caller (the
+ * leader) computes, and callers arriving while it runs wait for its result and
+ * each get a copy. Calls with different keys never wait on each other.
+ *
+ * <p>A follower computes on its own instead when the computation already has
+ * maxWaiters followers, when its own deadline passes first, or when the
+ * leader's result is not shareable (for example cut short by the leader's
+ * deadline). A leader's exception is rethrown to its followers.
+ */
+public class SingleFlight<K, V> {
+
+    private static final int HOTTEST_KEYS = 5;
+
+    private final int maxWaiters;
+    private final Predicate<V> shareable;
+    private final UnaryOperator<V> copy;
+    private final Map<K, Call<V>> calls = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong waitTimeouts = new AtomicLong();
+    private final AtomicLong unshareable = new AtomicLong();
+
+    /**
+     * @param maxWaiters followers allowed per computation, 0 to disable coalescing
+     */
+    public SingleFlight(int maxWaiters, Predicate<V> shareable, UnaryOperator<V> copy) {
+        this.maxWaiters = maxWaiters;
+        this.shareable = shareable;
+        this.copy = copy;
+    }
+
+    public V execute(K key, Deadline deadline, Supplier<V> compute) {
+        if (maxWaiters <= 0) {
+            return compute.get();
+        }
+        Call<V> call = new Call<>();
+        Call<V> running = calls.putIfAbsent(key, call);
+        if (running == null) {
+            leaders.incrementAndGet();
+            try {
+                V value = compute.get();
+                call.result.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                call.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                calls.remove(key, call);
+            }
+        }
+
+        if (running.waiters.incrementAndGet() > maxWaiters) {
+            running.waiters.decrementAndGet();
+            overflows.incrementAndGet();
+            return compute.get();
+        }
+        try {
+            V value = running.result.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+            if (shareable.test(value)) {
+                shared.incrementAndGet();
+                return copy.apply(value);
+            }
+            unshareable.incrementAndGet();
+        } catch (TimeoutException e) {
+            waitTimeouts.incrementAndGet();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw (Error) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.waiters.decrementAndGet();
+        }
+        return compute.get();
+    }
+
+    /**
+     * Leader/follower counts, the computations in flight and the keys with the most waiters.
+     */
+    public Map<String, Object> getMetrics() {
+        List<Map.Entry<K, Call<V>>> inFlight = new ArrayList<>(calls.entrySet());
+        long waiting = 0;
+        for (Map.Entry<K, Call<V>> entry : inFlight) {
+            waiting += entry.getValue().waiters.get();
+        }
+        inFlight.sort((a, b) -> Integer.compare(b.getValue().waiters.get(), a.getValue().waiters.get()));
+        List<Map<String, Object>> hottest = new ArrayList<>();
+        for (Map.Entry<K, Call<V>> entry : inFlight.subList(0, Math.min(HOTTEST_KEYS, inFlight.size()))) {
+            Map<String, Object> key = new LinkedHashMap<>();
+            key.put("key", String.valueOf(entry.getKey()));
+            key.put("waiters", entry.getValue().waiters.get());
+            hottest.add(key);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("maxWaiters", maxWaiters);
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("waiting", waiting);
+        metrics.put("leaders", leaders.get());
+        metrics.put("shared", shared.get());
+        metrics.put("overflows", overflows.get());
+        metrics.put("waitTimeouts", waitTimeouts.get());
+        metrics.put("unshareable", unshareable.get());
+        metrics.put("hottest", hottest);
+        return metrics;
+    }
+
+    private static final class Call<V> {
+
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final AtomicInteger waiters = new AtomicInteger();
+    }
+}
@@ -1,10 +1,12 @@
 package com.travelbuddy.service;
 
 import com.travelbuddy.model.Trip;
+import com.travelbuddy.repository.IndexedStore;
 import com.travelbuddy.repository.TripRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +29,17 @@ public class TripService {
         return tripRepository.findAll();
     }
 
+    public IndexedStore.Page<Trip> getTripsPage(Long after, int limit) {
+        return tripRepository.findPage(after, limit);
+    }
+
+    /**
+     * Every trip in id order, read from the repository as it is iterated.
+     */
+    public Collection<Trip> exportTrips() {
+        return tripRepository.values();
+    }
+
     public Optional<Trip> getTripById(Long id) {
         return tripRepository.findById(id);
     }
@@ -35,10 +48,18 @@ public class TripService {
         return tripRepository.findByUserId(userId);
     }
 
+    public IndexedStore.Page<Trip> getTripsPageByUserId(Long userId, Long after, int limit) {
+        return tripRepository.findPageByUserId(userId, after, limit);
+    }
+
     public List<Trip> getTripsByCity(String city) {
         return tripRepository.findByCity(city);
     }
 
+    public IndexedStore.Page<Trip> getTripsPageByCity(String city, Long after, int limit) {
+        return tripRepository.findPageByCity(city, after, limit);
+    }
+
     public List<Trip> getTripsByStatus(String status) {
         return tripRepository.findByStatus(status);
     }
@@ -62,22 +83,18 @@ public class TripService {
     }
 
     public Trip addActivityToTrip(Long tripId, Long activityId) {
-        Optional<Trip> tripOpt = tripRepository.findById(tripId);
-        if (tripOpt.isEmpty()) {
-            throw new IllegalArgumentException("Trip not found");
-        }
-        Trip trip = tripOpt.get();
-        trip.addActivityId(activityId);
-        return tripRepository.save(trip);
+        return tripRepository.update(tripId, current -> {
+            Trip trip = new Trip(current);
+            trip.addActivityId(activityId);
+            return trip;
+        }).orElseThrow(() -> new IllegalArgumentException("Trip not found"));
     }
 
     public Trip updateTripStatus(Long id, String status) {
-        Optional<Trip> tripOpt = tripRepository.findById(id);
-        if (tripOpt.isEmpty()) {
-            throw new IllegalArgumentException("Trip not found");
-        }
-        Trip trip = tripOpt.get();
-        trip.setStatus(status);
-        return tripRepository.save(trip);
+        return tripRepository.update(id, current -> {
+            Trip trip = new Trip(current);
+            trip.setStatus(status);
+            return trip;
+        }).orElseThrow(() -> new IllegalArgumentException("Trip not found"));
     }
 }
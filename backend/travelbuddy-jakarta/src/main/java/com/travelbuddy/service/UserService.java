@@ -1,10 +1,12 @@
 package com.travelbuddy.service;
 
 import com.travelbuddy.model.User;
+import com.travelbuddy.repository.IndexedStore;
 import com.travelbuddy.repository.UserRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +29,17 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    public IndexedStore.Page<User> getUsersPage(Long after, int limit) {
+        return userRepository.findPage(after, limit);
+    }
+
+    /**
+     * Every user in id order, read from the repository as it is iterated.
+     */
+    public Collection<User> exportUsers() {
+        return userRepository.values();
+    }
+
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
@@ -39,25 +52,22 @@ public class UserService {
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * @throws IllegalArgumentException if the username or email is already taken
+     */
     public User createUser(User user) {
-        // Validate unique username and email
-        if (userRepository.existsByUsername(user.getUsername())) {
-            throw new IllegalArgumentException("Username already exists");
-        }
-        if (userRepository.existsByEmail(user.getEmail())) {
-            throw new IllegalArgumentException("Email already exists");
-        }
-        return userRepository.save(user);
+        return userRepository.saveIfUnique(user);
     }
 
+    /**
+     * @throws IllegalArgumentException if there is no such user, or if another
+     *                                  user has the username or email
+     */
     public User updateUser(Long id, User user) {
-        Optional<User> existing = userRepository.findById(id);
-        if (existing.isEmpty()) {
-            throw new IllegalArgumentException("User not found");
-        }
-        user.setId(id);
-        user.setCreatedAt(existing.get().getCreatedAt());
-        return userRepository.save(user);
+        return userRepository.updateIfUnique(id, existing -> {
+            user.setCreatedAt(existing.getCreatedAt());
+            return user;
+        }).orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
 
     public void deleteUser(Long id) {
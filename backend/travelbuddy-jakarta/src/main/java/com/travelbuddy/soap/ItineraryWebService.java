@@ -2,6 +2,9 @@ package com.travelbuddy.soap;
 
 import com.travelbuddy.model.Itinerary;
 import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.model.MultiCityRequest;
+import com.travelbuddy.model.ReplanRequest;
+import com.travelbuddy.model.ReplanResponse;
 import jakarta.jws.WebMethod;
 import jakarta.jws.WebParam;
 import jakarta.jws.WebResult;
@@ -18,7 +21,8 @@ public interface ItineraryWebService {
 
     /**
      * Build an itinerary based on user preferences.
-     * This is the main SOAP operation.
+     * This is the main SOAP operation. The request's timeoutMs (0 for the server
+     * default) bounds the computation; an itinerary cut short is flagged partial.
      * 
      * @param request The itinerary request containing city, budget, duration, etc.
      * @return The generated itinerary with scheduled activities
@@ -28,6 +32,73 @@ public interface ItineraryWebService {
     Itinerary buildItinerary(
             @WebParam(name = "itineraryRequest") ItineraryRequest request);
 
+    /**
+     * Fetch a long itinerary (beyond 14 days) in chunks of days, e.g. days 1-14,
+     * then 15-28. The days are planned as for a streamed itinerary.
+     * 
+     * @param request  The itinerary request; its duration may exceed 14 days
+     * @param firstDay First day number of the chunk, from 1
+     * @param dayCount Days in the chunk, at most 14
+     * @return The chunk's days; the remaining budget is that of the whole trip
+     */
+    @WebMethod(operationName = "buildItineraryDays")
+    @WebResult(name = "itineraryResponse")
+    Itinerary buildItineraryDays(
+            @WebParam(name = "itineraryRequest") ItineraryRequest request,
+            @WebParam(name = "firstDay") int firstDay,
+            @WebParam(name = "dayCount") int dayCount);
+
+    /**
+     * Build several itineraries in one call, evaluated in parallel.
+     * Each result reports its own success or error; results are in request order.
+     * 
+     * @param requests The itinerary requests
+     * @return One itinerary per request
+     */
+    @WebMethod(operationName = "buildItineraries")
+    @WebResult(name = "itineraryResponse")
+    List<Itinerary> buildItineraries(
+            @WebParam(name = "itineraryRequest") List<ItineraryRequest> requests);
+
+    /**
+     * Build one itinerary over several cities, e.g. Paris, then Rome, then Barcelona.
+     * Legs without a duration or budget share the rest of the trip's totals.
+     * 
+     * @param request The legs plus the trip's budget, duration and preferences
+     * @return One itinerary with continuous day numbers; each day names its city
+     */
+    @WebMethod(operationName = "buildMultiCityItinerary")
+    @WebResult(name = "itineraryResponse")
+    Itinerary buildMultiCityItinerary(
+            @WebParam(name = "multiCityRequest") MultiCityRequest request);
+
+    /**
+     * Build several distinct alternative itineraries for one request, best first.
+     * 
+     * @param request   The itinerary request
+     * @param count     Number of alternatives (0 for the default of 3, at most 10)
+     * @param beamWidth Search breadth (0 for the server default); wider is slower but explores more
+     * @return The alternatives, or a single unsuccessful itinerary if the request is invalid
+     */
+    @WebMethod(operationName = "buildAlternatives")
+    @WebResult(name = "itineraryResponse")
+    List<Itinerary> buildAlternatives(
+            @WebParam(name = "itineraryRequest") ItineraryRequest request,
+            @WebParam(name = "count") int count,
+            @WebParam(name = "beamWidth") int beamWidth);
+
+    /**
+     * Re-plan an itinerary after edits, recomputing only the affected slots.
+     * 
+     * @param request The original request (with any new budget or duration), the
+     *                current itinerary and the pinned and removed activities
+     * @return The updated itinerary and the slots that changed
+     */
+    @WebMethod(operationName = "replanItinerary")
+    @WebResult(name = "replanResponse")
+    ReplanResponse replanItinerary(
+            @WebParam(name = "replanRequest") ReplanRequest request);
+
     /**
      * Get available activity types for a city.
      * 
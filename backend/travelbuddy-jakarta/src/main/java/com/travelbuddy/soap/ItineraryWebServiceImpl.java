@@ -2,9 +2,13 @@ package com.travelbuddy.soap;
 
 import com.travelbuddy.model.Itinerary;
 import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.model.MultiCityRequest;
+import com.travelbuddy.model.ReplanRequest;
+import com.travelbuddy.model.ReplanResponse;
 import com.travelbuddy.service.ItineraryService;
 import jakarta.inject.Inject;
 import jakarta.jws.WebService;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,6 +33,68 @@ public class ItineraryWebServiceImpl implements ItineraryWebService {
         }
     }
 
+    @Override
+    public Itinerary buildItineraryDays(ItineraryRequest request, int firstDay, int dayCount) {
+        System.out.println("SOAP day chunk request received: " + request + ", days " + firstDay + "+" + dayCount);
+
+        if (request == null) {
+            return new Itinerary(false, "Request is required");
+        }
+        try {
+            return itineraryService.buildItineraryDays(request, firstDay, dayCount);
+        } catch (Exception e) {
+            System.err.println("Error building itinerary days: " + e.getMessage());
+            return new Itinerary(false, "Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Itinerary> buildItineraries(List<ItineraryRequest> requests) {
+        System.out.println("SOAP batch request received: " + (requests == null ? 0 : requests.size()) + " requests");
+        return itineraryService.buildItineraries(requests);
+    }
+
+    @Override
+    public Itinerary buildMultiCityItinerary(MultiCityRequest request) {
+        System.out.println("SOAP multi-city request received: " + request);
+
+        try {
+            Itinerary result = itineraryService.buildMultiCityItinerary(request);
+            System.out.println("SOAP Response: " + result);
+            return result;
+        } catch (Exception e) {
+            System.err.println("Error building multi-city itinerary: " + e.getMessage());
+            return new Itinerary(false, "Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Itinerary> buildAlternatives(ItineraryRequest request, int count, int beamWidth) {
+        System.out.println("SOAP alternatives request received: " + request + ", count=" + count);
+
+        try {
+            return itineraryService.buildAlternatives(request, count, beamWidth);
+        } catch (Exception e) {
+            System.err.println("Error building alternatives: " + e.getMessage());
+            return new ArrayList<>(List.of(new Itinerary(false, "Error: " + e.getMessage())));
+        }
+    }
+
+    @Override
+    public ReplanResponse replanItinerary(ReplanRequest request) {
+        System.out.println("SOAP replan request received");
+
+        if (request == null) {
+            return new ReplanResponse(false, "Request is required");
+        }
+        try {
+            return itineraryService.replanItinerary(request);
+        } catch (Exception e) {
+            System.err.println("Error re-planning itinerary: " + e.getMessage());
+            return new ReplanResponse(false, "Error: " + e.getMessage());
+        }
+    }
+
     @Override
     public List<String> getActivityTypes(String city) {
         System.out.println("SOAP Request - getActivityTypes for city: " + city);
@@ -0,0 +1,57 @@
+package com.travelbuddy;
+
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A temporary data directory for each test (as a {@code @Rule}) or for a whole
+ * test class (as a {@code @ClassRule}): travelbuddy.data.dir points at it while
+ * the tests run, and it is deleted afterwards.
+ */
+public class TemporaryDataDirectory extends ExternalResource {
+
+    private static final String PROPERTY = "travelbuddy.data.dir";
+
+    private final String prefix;
+    private Path path;
+    private String previous;
+
+    public TemporaryDataDirectory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        path = Files.createTempDirectory(prefix);
+        previous = System.getProperty(PROPERTY);
+        System.setProperty(PROPERTY, path.toString());
+    }
+
+    @Override
+    protected void after() {
+        if (previous == null) {
+            System.clearProperty(PROPERTY);
+        } else {
+            System.setProperty(PROPERTY, previous);
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Path resolve(String file) {
+        return path.resolve(file);
+    }
+}
@@ -0,0 +1,118 @@
+package com.travelbuddy.benchmark;
+
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.repository.ActivityRepository;
+import com.travelbuddy.service.ItineraryService;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Latency of buildAlternatives versus the number of alternatives K and the beam
+ * width, next to the cost of K separate buildItinerary calls with tweaked
+ * budgets (what clients do today). Every request and response goes through
+ * JAXB binding, as in a SOAP envelope. The itinerary cache is disabled.
+ *
+ * <pre>
+ * java -cp ... com.travelbuddy.benchmark.ItineraryAlternativesBenchmark [activitiesPerCity] [iterations]
+ * </pre>
+ */
+public class ItineraryAlternativesBenchmark {
+
+    private static final JAXBContext CONTEXT = createContext();
+
+    private static final String[] CITIES = { "Paris", "Rome", "Lisbon" };
+    private static final String[] TYPES = { "landmark", "museum", "restaurant", "nature", "shopping", "nightlife" };
+    private static final String[] SLOTS = { "morning", "afternoon", "evening", "" };
+
+    private static JAXBContext createContext() {
+        try {
+            return JAXBContext.newInstance(ItineraryRequest.class, Itinerary.class);
+        } catch (JAXBException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int perCity = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        System.setProperty("travelbuddy.data.dir", Files.createTempDirectory("travelbuddy-bench").toString());
+        System.setProperty("travelbuddy.reload.enabled", "false");
+        System.setProperty("travelbuddy.itinerary.cache.maxEntries", "0");
+
+        Random random = new Random(3);
+        ActivityRepository repository = ActivityRepository.getInstance();
+        for (String city : CITIES) {
+            for (int i = 0; i < perCity; i++) {
+                repository.save(new Activity(null, city + " activity " + i, city, TYPES[random.nextInt(TYPES.length)],
+                        2, 5 + random.nextInt(120), 1 + random.nextInt(41) / 10.0, "Generated",
+                        SLOTS[random.nextInt(SLOTS.length)], null));
+            }
+        }
+        ItineraryService service = ItineraryService.getInstance();
+        ItineraryRequest request = new ItineraryRequest("Rome", 800, 7, null, "balanced");
+        System.out.printf("%d activities per city, 7-day balanced request, %d iterations%n", perCity, iterations);
+
+        for (int k : new int[] { 1, 3, 5, 10 }) {
+            double separate = time(iterations, () -> {
+                for (int i = 0; i < k; i++) {
+                    request.setBudget(800 - 50 * i);
+                    bind(roundTrip(request));
+                    bind(roundTrip(service.buildItinerary(request)));
+                }
+                request.setBudget(800);
+            });
+            StringBuilder line = new StringBuilder(String.format("K=%-2d  %d separate calls %7.2f ms", k, k, separate));
+            for (int width : new int[] { 4, 16, 64 }) {
+                if (width < k) {
+                    continue;
+                }
+                List<Itinerary> alternatives = service.buildAlternatives(request, k, width);
+                double beam = time(iterations, () -> {
+                    bind(roundTrip(request));
+                    for (Itinerary itinerary : service.buildAlternatives(request, k, width)) {
+                        bind(roundTrip(itinerary));
+                    }
+                });
+                line.append(String.format(" | beam %-2d %7.2f ms (%d found)", width, beam, alternatives.size()));
+            }
+            System.out.println(line);
+        }
+        System.exit(0);
+    }
+
+    private static Object roundTrip(Object value) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CONTEXT.createMarshaller().marshal(value, out);
+            return CONTEXT.createUnmarshaller().unmarshal(new ByteArrayInputStream(out.toByteArray()));
+        } catch (JAXBException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void bind(Object value) {
+        if (value == null) {
+            throw new IllegalStateException("Binding lost a value");
+        }
+    }
+
+    private static double time(int iterations, Runnable work) {
+        for (int i = 0; i < Math.max(1, iterations / 5); i++) {
+            work.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            work.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / iterations;
+    }
+}
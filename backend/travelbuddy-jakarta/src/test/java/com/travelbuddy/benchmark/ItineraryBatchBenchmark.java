@@ -0,0 +1,97 @@
+package com.travelbuddy.benchmark;
+
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.repository.ActivityRepository;
+import com.travelbuddy.soap.ItineraryWebServiceImpl;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput of the buildItineraries batch operation against the same number
+ * of single buildItinerary calls, in process.
+ * Every request and response goes through JAXB binding, as it would in a SOAP
+ * envelope; an optional simulated round trip is paid once per call.
+ * The itinerary cache is disabled so every request is computed.
+ *
+ * <pre>
+ * java -cp ... com.travelbuddy.benchmark.ItineraryBatchBenchmark [requests] [activities] [roundTripMillis]
+ * </pre>
+ */
+public class ItineraryBatchBenchmark {
+
+    private static final String[] CITIES = { "Paris", "Rome", "Barcelona", "Lisbon", "Berlin" };
+    private static final String[] TYPES = { "landmark", "museum", "restaurant", "nature", "shopping", "nightlife" };
+    private static final String[] SLOTS = { "morning", "afternoon", "evening", "" };
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int activities = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        long roundTripMillis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        System.setProperty("travelbuddy.data.dir", Files.createTempDirectory("travelbuddy-bench").toString());
+        System.setProperty("travelbuddy.reload.enabled", "false");
+        System.setProperty("travelbuddy.itinerary.cache.maxEntries", "0");
+
+        Random random = new Random(7);
+        ActivityRepository repository = ActivityRepository.getInstance();
+        for (int i = 0; i < activities; i++) {
+            repository.save(new Activity(null, "Activity " + i, CITIES[random.nextInt(CITIES.length)],
+                    TYPES[random.nextInt(TYPES.length)], 2, random.nextInt(100), 3 + random.nextInt(21) / 10.0,
+                    "Generated", SLOTS[random.nextInt(SLOTS.length)], null));
+        }
+        List<ItineraryRequest> batch = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            batch.add(new ItineraryRequest(CITIES[random.nextInt(CITIES.length)], 200 + random.nextInt(2000),
+                    1 + random.nextInt(14), Arrays.asList(TYPES[random.nextInt(TYPES.length)],
+                            TYPES[random.nextInt(TYPES.length)]), "balanced"));
+        }
+
+        JAXBContext context = JAXBContext.newInstance(ItineraryRequest.class, Itinerary.class);
+        ItineraryWebServiceImpl service = new ItineraryWebServiceImpl();
+        System.out.printf("%d requests, %d activities, %d ms simulated round trip, %d cores%n",
+                requests, activities, roundTripMillis, Runtime.getRuntime().availableProcessors());
+
+        for (int round = 1; round <= 5; round++) {
+            long start = System.nanoTime();
+            for (ItineraryRequest request : batch) {
+                Thread.sleep(roundTripMillis);
+                roundTrip(context, service.buildItinerary(roundTrip(context, request)));
+            }
+            long singles = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<ItineraryRequest> received = new ArrayList<>(batch.size());
+            for (ItineraryRequest request : batch) {
+                received.add(roundTrip(context, request));
+            }
+            Thread.sleep(roundTripMillis);
+            for (Itinerary itinerary : service.buildItineraries(received)) {
+                roundTrip(context, itinerary);
+            }
+            long batched = System.nanoTime() - start;
+
+            System.out.printf("round %d: single calls %.0f req/s, batch %.0f req/s (%.2fx)%n", round,
+                    requests / (singles / 1e9), requests / (batched / 1e9), (double) singles / batched);
+        }
+        System.exit(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(JAXBContext context, T value) throws JAXBException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.marshal(value, out);
+        return (T) context.createUnmarshaller().unmarshal(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
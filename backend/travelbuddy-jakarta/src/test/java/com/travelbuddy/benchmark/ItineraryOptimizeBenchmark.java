@@ -0,0 +1,88 @@
+package com.travelbuddy.benchmark;
+
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryDay;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.model.ScheduledActivity;
+import com.travelbuddy.repository.ActivityRepository;
+import com.travelbuddy.service.ItineraryService;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Latency and quality of the optimize=true itinerary mode on one large city,
+ * against the greedy mode: time per request, total rating and days filled.
+ * The itinerary cache is disabled so every request is computed.
+ *
+ * <pre>
+ * java -cp ... com.travelbuddy.benchmark.ItineraryOptimizeBenchmark [activities] [iterations]
+ * </pre>
+ */
+public class ItineraryOptimizeBenchmark {
+
+    private static final String[] TYPES = { "landmark", "museum", "restaurant", "nature", "shopping", "nightlife" };
+    private static final String[] SLOTS = { "morning", "afternoon", "evening", "" };
+
+    public static void main(String[] args) throws Exception {
+        int activities = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        System.setProperty("travelbuddy.data.dir", Files.createTempDirectory("travelbuddy-bench").toString());
+        System.setProperty("travelbuddy.reload.enabled", "false");
+        System.setProperty("travelbuddy.itinerary.cache.maxEntries", "0");
+
+        Random random = new Random(11);
+        ActivityRepository repository = ActivityRepository.getInstance();
+        Map<Long, Double> ratings = new HashMap<>();
+        for (int i = 0; i < activities; i++) {
+            Activity activity = repository.save(new Activity(null, "Activity " + i, "Bigcity",
+                    TYPES[random.nextInt(TYPES.length)], 2, 5 + random.nextInt(150) + random.nextInt(100) / 100.0,
+                    1 + random.nextInt(41) / 10.0, "Generated", SLOTS[random.nextInt(SLOTS.length)], null));
+            ratings.put(activity.getId(), activity.getRating());
+        }
+        ItineraryService service = ItineraryService.getInstance();
+        System.out.printf("%d activities in one city, %d iterations per case%n", activities, iterations);
+
+        for (String preference : new String[] { "relaxed", "balanced", "intensive" }) {
+            for (double budget : new double[] { 300, 1500, 6000 }) {
+                ItineraryRequest request = new ItineraryRequest("Bigcity", budget, 14, null, preference);
+                Itinerary greedy = service.buildItinerary(request);
+                request.setOptimize(true);
+                request.setActivityTypes(Arrays.asList());
+
+                long worst = 0;
+                long sum = 0;
+                Itinerary optimized = null;
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    optimized = service.buildItinerary(request);
+                    long elapsed = System.nanoTime() - start;
+                    sum += elapsed;
+                    worst = Math.max(worst, elapsed);
+                }
+                System.out.printf("%-9s budget %5.0f: greedy rating %6.1f, %2d days | optimized rating %6.1f, %2d days,"
+                        + " mean %6.1f ms, max %6.1f ms%s%n", preference, budget,
+                        totalRating(greedy, ratings), greedy.getDays().size(),
+                        totalRating(optimized, ratings), optimized.getDays().size(),
+                        sum / 1e6 / iterations, worst / 1e6,
+                        optimized.getMessage().startsWith("Optimized") ? "" : " (fell back to greedy)");
+            }
+        }
+        System.exit(0);
+    }
+
+    private static double totalRating(Itinerary itinerary, Map<Long, Double> ratings) {
+        double total = 0;
+        for (ItineraryDay day : itinerary.getDays()) {
+            for (ScheduledActivity activity : day.getActivities()) {
+                total += ratings.get(activity.getActivityId());
+            }
+        }
+        return total;
+    }
+}
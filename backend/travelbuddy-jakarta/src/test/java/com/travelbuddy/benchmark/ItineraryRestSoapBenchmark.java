@@ -0,0 +1,171 @@
+package com.travelbuddy.benchmark;
+
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.repository.ActivityRepository;
+import com.travelbuddy.rest.ItineraryResource;
+import com.travelbuddy.soap.ItineraryWebServiceImpl;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.soap.MessageFactory;
+import jakarta.xml.soap.MimeHeaders;
+import jakarta.xml.soap.SOAPElement;
+import jakarta.xml.soap.SOAPMessage;
+import org.w3c.dom.Node;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Payload size and latency of buildItinerary over SOAP (/ws/itinerary) and over
+ * JSON (POST /api/itineraries), in process: both paths encode the request on
+ * the client side, decode it on the server side, call the endpoint class,
+ * encode the response and decode it again on the client side, as the wire
+ * formats require. The network itself is left out. Requests are drawn from a
+ * pool of presets, so after warm-up most are itinerary cache hits and the
+ * encoding dominates.
+ *
+ * <pre>
+ * java -cp ... com.travelbuddy.benchmark.ItineraryRestSoapBenchmark [iterations] [presets]
+ * </pre>
+ */
+public class ItineraryRestSoapBenchmark {
+
+    private static final String NAMESPACE = "http://soap.travelbuddy.com/";
+    private static final String[] CITIES = { "Paris", "Rome", "Lisbon" };
+    private static final String[] TYPES = { "landmark", "museum", "restaurant", "nature", "shopping", "nightlife" };
+    private static final String[] SLOTS = { "morning", "afternoon", "evening", "" };
+    private static final String[] PREFERENCES = { "relaxed", "balanced", "intensive" };
+
+    // Reused like a SOAP stack reuses them; the benchmark is single-threaded
+    private static Marshaller marshaller;
+    private static Unmarshaller unmarshaller;
+    private static MessageFactory messageFactory;
+    private static Jsonb jsonb;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int presets = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        System.setProperty("travelbuddy.data.dir", Files.createTempDirectory("travelbuddy-bench").toString());
+        System.setProperty("travelbuddy.reload.enabled", "false");
+
+        Random random = new Random(5);
+        ActivityRepository repository = ActivityRepository.getInstance();
+        for (String city : CITIES) {
+            for (int i = 0; i < 2_000; i++) {
+                repository.save(new Activity(null, city + " activity " + i, city, TYPES[random.nextInt(TYPES.length)],
+                        2, 5 + random.nextInt(120), 1 + random.nextInt(41) / 10.0, "Generated description " + i,
+                        SLOTS[random.nextInt(SLOTS.length)], null));
+            }
+        }
+        List<ItineraryRequest> requests = new ArrayList<>();
+        for (int i = 0; i < presets; i++) {
+            requests.add(new ItineraryRequest(CITIES[random.nextInt(CITIES.length)], 200 + random.nextInt(2000),
+                    1 + random.nextInt(14), Arrays.asList(TYPES[random.nextInt(TYPES.length)],
+                            TYPES[random.nextInt(TYPES.length)]), PREFERENCES[random.nextInt(PREFERENCES.length)]));
+        }
+
+        JAXBContext context = JAXBContext.newInstance(ItineraryRequest.class, Itinerary.class);
+        marshaller = context.createMarshaller();
+        unmarshaller = context.createUnmarshaller();
+        messageFactory = MessageFactory.newInstance();
+        jsonb = JsonbBuilder.create();
+        ItineraryWebServiceImpl soap = new ItineraryWebServiceImpl();
+        ItineraryResource rest = new ItineraryResource();
+        // The SOAP endpoint logs every call; keep the report readable
+        PrintStream report = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        long[] bytes = new long[4];
+        Transport[] transports = {
+                new Transport("SOAP", request -> {
+                    byte[] call = soapMessage("buildItinerary", "itineraryRequest", ItineraryRequest.class, request);
+                    ItineraryRequest received = soapPayload(call, ItineraryRequest.class);
+                    byte[] reply = soapMessage("buildItineraryResponse", "itineraryResponse", Itinerary.class,
+                            soap.buildItinerary(received));
+                    soapPayload(reply, Itinerary.class);
+                    bytes[0] += call.length;
+                    bytes[1] += reply.length;
+                }),
+                new Transport("REST", request -> {
+                    byte[] call = jsonb.toJson(request).getBytes(StandardCharsets.UTF_8);
+                    ItineraryRequest received = jsonb.fromJson(new ByteArrayInputStream(call), ItineraryRequest.class);
+                    Object entity = rest.buildItinerary(received, 0).getEntity();
+                    byte[] reply = (entity instanceof String ? (String) entity : jsonb.toJson(entity))
+                            .getBytes(StandardCharsets.UTF_8);
+                    jsonb.fromJson(new ByteArrayInputStream(reply), Itinerary.class);
+                    bytes[2] += call.length;
+                    bytes[3] += reply.length;
+                }) };
+
+        for (Transport transport : transports) {
+            for (int i = 0; i < iterations / 4; i++) {
+                transport.call.run(requests.get(i % requests.size()));
+            }
+        }
+        Arrays.fill(bytes, 0);
+        report.printf("%d calls per transport, %d presets, %d cores%n", iterations, presets,
+                Runtime.getRuntime().availableProcessors());
+        for (Transport transport : transports) {
+            long[] latencies = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                transport.call.run(requests.get(i % requests.size()));
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+            int offset = transport.name.equals("SOAP") ? 0 : 2;
+            report.printf("%-4s request %6.0f B, response %7.0f B | p50 %7.1f us, p99 %7.1f us, max %8.1f us%n",
+                    transport.name, (double) bytes[offset] / iterations, (double) bytes[offset + 1] / iterations,
+                    latencies[iterations / 2] / 1e3, latencies[(int) (iterations * 0.99)] / 1e3,
+                    latencies[iterations - 1] / 1e3);
+        }
+        System.exit(0);
+    }
+
+    private static <T> byte[] soapMessage(String operation, String part, Class<T> type, T value) throws Exception {
+        SOAPMessage message = messageFactory.createMessage();
+        SOAPElement wrapper = message.getSOAPBody().addBodyElement(new QName(NAMESPACE, operation, "ns2"));
+        marshaller.marshal(new JAXBElement<>(new QName(part), type, value), wrapper);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static <T> T soapPayload(byte[] envelope, Class<T> type) throws Exception {
+        SOAPMessage message = messageFactory.createMessage(new MimeHeaders(), new ByteArrayInputStream(envelope));
+        Node wrapper = message.getSOAPBody().getFirstChild();
+        Node part = wrapper.getFirstChild();
+        return unmarshaller.unmarshal(part, type).getValue();
+    }
+
+    private interface Call {
+        void run(ItineraryRequest request) throws Exception;
+    }
+
+    private static final class Transport {
+
+        final String name;
+        final Call call;
+
+        Transport(String name, Call call) {
+            this.name = name;
+            this.call = call;
+        }
+    }
+}
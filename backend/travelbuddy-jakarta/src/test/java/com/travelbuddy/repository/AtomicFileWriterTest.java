@@ -0,0 +1,111 @@
+package com.travelbuddy.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.travelbuddy.TemporaryDataDirectory;
+import com.travelbuddy.model.Activity;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fault-injection tests for crash-safe snapshot writes and recovery on startup.
+ */
+public class AtomicFileWriterTest {
+
+    @Rule
+    public final TemporaryDataDirectory dir = new TemporaryDataDirectory("travelbuddy-test");
+
+    @Test
+    public void writeKilledMidStreamLeavesPreviousFileIntact() throws IOException {
+        Path target = dir.resolve("activities.xml");
+        AtomicFileWriter.write(target, out -> out.write(bytes("old content")), FsyncPolicy.ALWAYS);
+
+        byte[] large = new byte[256 * 1024];
+        try {
+            AtomicFileWriter.write(target, out -> out.write(large), FsyncPolicy.ALWAYS,
+                    channel -> new FailingChannel(channel, 100_000));
+            fail("write should have failed");
+        } catch (IOException expected) {
+            // the injected failure
+        }
+
+        assertEquals("old content", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(dir.resolve("activities.xml" + AtomicFileWriter.TEMP_SUFFIX)));
+    }
+
+    @Test
+    public void repositoryRecoversFromInterruptedSnapshotAndTornJournal() throws IOException {
+        ActivityRepository repository = new ActivityRepository();
+        repository.init();
+        int seeded = repository.findAll().size();
+        Activity saved = repository.save(new Activity(null, "Night walk", "Paris", "culture", 2, 0, 4.5, "", "evening", null));
+
+        // A crash while writing the snapshot and while appending to the journal
+        Path temp = dir.resolve("activities.xml" + AtomicFileWriter.TEMP_SUFFIX);
+        Files.write(temp, bytes("<activities><activity id=\"1\"><na"));
+        Files.write(dir.resolve("activities.journal"), new byte[] { 'S', 0, 0, 0 }, StandardOpenOption.APPEND);
+
+        ActivityRepository recovered = new ActivityRepository();
+        recovered.init();
+
+        assertEquals(seeded + 1, recovered.findAll().size());
+        assertTrue(recovered.findById(saved.getId()).isPresent());
+        assertFalse(Files.exists(temp));
+        Activity next = recovered.save(new Activity(null, "Boat tour", "Paris", "nature", 1, 20, 4.0, "", "afternoon", null));
+        assertEquals(saved.getId() + 1, (long) next.getId());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Accepts a number of bytes, then fails as if the process had died mid-write.
+     */
+    private static class FailingChannel implements WritableByteChannel {
+
+        private final WritableByteChannel delegate;
+        private long remaining;
+
+        FailingChannel(WritableByteChannel delegate, long failAfter) {
+            this.delegate = delegate;
+            this.remaining = failAfter;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (remaining <= 0) {
+                throw new IOException("injected failure");
+            }
+            int limit = src.limit();
+            if (src.remaining() > remaining) {
+                src.limit(src.position() + (int) remaining);
+            }
+            int written = delegate.write(src);
+            src.limit(limit);
+            remaining -= written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
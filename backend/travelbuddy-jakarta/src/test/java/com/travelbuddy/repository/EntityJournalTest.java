@@ -0,0 +1,189 @@
+package com.travelbuddy.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.travelbuddy.TemporaryDataDirectory;
+import com.travelbuddy.model.Activity;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Replay and recovery of the mutation journal: torn tails are cut off, intact
+ * records around an undecodable one survive, and compaction empties the file.
+ */
+public class EntityJournalTest {
+
+    @Rule
+    public final TemporaryDataDirectory dir = new TemporaryDataDirectory("travelbuddy-journal");
+    private Path file;
+
+    @Before
+    public void setUp() {
+        file = dir.resolve("activities.journal");
+    }
+
+    @Test
+    public void replaysSavesDeletesAndSequenceInOrder() {
+        EntityJournal<Activity> journal = newJournal();
+        journal.appendSave(1L, activity(1L, "Louvre"));
+        journal.appendSave(2L, activity(2L, "Orsay"));
+        journal.appendDelete(1L);
+        journal.appendSequence(42);
+        journal.flush();
+        journal.close();
+
+        Replayed replayed = replay();
+        assertEquals(List.of("Louvre", "Orsay"), replayed.saved);
+        assertEquals(List.of(1L), replayed.deleted);
+        assertEquals(List.of(42L), replayed.sequences);
+        assertEquals(4, replayed.journal.getRecordCount());
+    }
+
+    @Test
+    public void partialLastRecordIsDiscardedAndLaterAppendsReplay() throws IOException {
+        EntityJournal<Activity> journal = newJournal();
+        journal.appendSave(1L, activity(1L, "Louvre"));
+        journal.flush();
+        long intact = Files.size(file);
+        journal.appendSave(2L, activity(2L, "Orsay"));
+        journal.flush();
+        journal.close();
+        truncate(Files.size(file) - 5);
+
+        Replayed replayed = replay();
+        assertEquals(List.of("Louvre"), replayed.saved);
+        assertEquals(intact, Files.size(file));
+
+        replayed.journal.appendSave(3L, activity(3L, "Pompidou"));
+        replayed.journal.flush();
+        replayed.journal.close();
+        assertEquals(List.of("Louvre", "Pompidou"), replay().saved);
+    }
+
+    @Test
+    public void crcMismatchDiscardsTheRecordAndEverythingAfterIt() throws IOException {
+        EntityJournal<Activity> journal = newJournal();
+        journal.appendSave(1L, activity(1L, "Louvre"));
+        journal.flush();
+        long intact = Files.size(file);
+        journal.appendSave(2L, activity(2L, "Orsay"));
+        journal.appendDelete(1L);
+        journal.flush();
+        journal.close();
+        // Flip a payload byte of the second record
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(intact + 20);
+            int b = raf.read();
+            raf.seek(intact + 20);
+            raf.write(b ^ 0xFF);
+        }
+
+        Replayed replayed = replay();
+        assertEquals(List.of("Louvre"), replayed.saved);
+        assertTrue(replayed.deleted.isEmpty());
+        assertEquals(intact, Files.size(file));
+    }
+
+    @Test
+    public void undecodableRecordWithValidCrcIsSkippedWithoutTruncating() throws IOException {
+        EntityJournal<Activity> journal = newJournal();
+        journal.appendSave(1L, activity(1L, "Louvre"));
+        journal.flush();
+        journal.close();
+        Files.write(file, record('S', 2L, "<activity><name>unterminated".getBytes(StandardCharsets.UTF_8)),
+                StandardOpenOption.APPEND);
+        journal = newJournal();
+        journal.appendSave(3L, activity(3L, "Pompidou"));
+        journal.appendSequence(7);
+        journal.flush();
+        journal.close();
+        long length = Files.size(file);
+
+        Replayed replayed = replay();
+        assertEquals(List.of("Louvre", "Pompidou"), replayed.saved);
+        assertEquals(List.of(7L), replayed.sequences);
+        assertEquals(length, Files.size(file));
+    }
+
+    @Test
+    public void compactionWritesSnapshotAndResetsJournal() throws IOException {
+        EntityJournal<Activity> journal = newJournal();
+        AtomicInteger snapshots = new AtomicInteger();
+        WriteBehindFlusher<Activity> flusher = new WriteBehindFlusher<>("test", journal, snapshots::incrementAndGet,
+                WriteBehindFlusher.Durability.SYNC, 50, 500);
+        long id = 0;
+        while (snapshots.get() == 0) {
+            id++;
+            flusher.awaitDurable(flusher.save(id, activity(id, "Activity " + id)));
+        }
+        assertEquals(0, Files.size(file));
+        assertEquals(0, journal.getRecordCount());
+        assertTrue(replay().saved.isEmpty());
+
+        flusher.awaitDurable(flusher.save(id + 1, activity(id + 1, "After compaction")));
+        journal.close();
+        assertEquals(List.of("After compaction"), replay().saved);
+    }
+
+    private EntityJournal<Activity> newJournal() {
+        return new EntityJournal<>(file, Activity.class, FsyncPolicy.NEVER);
+    }
+
+    private Replayed replay() {
+        Replayed replayed = new Replayed();
+        replayed.journal.replay(a -> replayed.saved.add(a.getName()), replayed.deleted::add, replayed.sequences::add);
+        return replayed;
+    }
+
+    private void truncate(long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    /**
+     * A record in the journal's layout with a correct checksum.
+     */
+    private static byte[] record(char op, long id, byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(op);
+        out.writeLong(id);
+        out.writeInt(payload.length);
+        out.write(payload);
+        CRC32 crc = new CRC32();
+        crc.update(op);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (id >>> shift));
+        }
+        crc.update(payload);
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private static Activity activity(Long id, String name) {
+        return new Activity(id, name, "Paris", "museum", 2, 15, 4.5, "", "morning", null);
+    }
+
+    private class Replayed {
+        final EntityJournal<Activity> journal = newJournal();
+        final List<String> saved = new ArrayList<>();
+        final List<Long> deleted = new ArrayList<>();
+        final List<Long> sequences = new ArrayList<>();
+    }
+}
@@ -0,0 +1,141 @@
+package com.travelbuddy.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.travelbuddy.model.Trip;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stress tests for the concurrency guarantees of IndexedStore.
+ */
+public class IndexedStoreConcurrencyTest {
+
+    private static final int THREADS = 64;
+
+    @Test
+    public void concurrentUpdatesToOneEntityAreNotLost() throws Exception {
+        IndexedStore<Trip> store = new IndexedStore<>(Trip::getId);
+        store.put(new Trip(1L, "Shared", 1L, "Paris", null, null, 100));
+        int perThread = 250;
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < perThread; i++) {
+                long activityId = (long) thread * perThread + i;
+                store.update(1L, current -> {
+                    Trip copy = new Trip(current);
+                    copy.addActivityId(activityId);
+                    return copy;
+                });
+            }
+        });
+
+        List<Long> activityIds = store.findById(1L).get().getActivityIds();
+        assertEquals(THREADS * perThread, activityIds.size());
+        assertEquals(THREADS * perThread, new HashSet<>(activityIds).size());
+    }
+
+    @Test
+    public void indexesStayConsistentUnderConcurrentWritesAndReads() throws Exception {
+        IndexedStore<Trip> store = new IndexedStore<>(Trip::getId);
+        IndexedStore.MultiIndex<Trip> byCity = store.addMultiIndex(Trip::getCity);
+        IndexedStore.MultiIndex<Trip> byUser = store.addMultiIndex(Trip::getUserId);
+        String[] cities = { "Paris", "Rome", "Barcelona" };
+        int perThread = 300;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Throwable> readerErrors = new ConcurrentLinkedQueue<>();
+
+        ExecutorService readers = Executors.newFixedThreadPool(8);
+        for (int r = 0; r < 8; r++) {
+            readers.submit(() -> {
+                try {
+                    while (writing.get()) {
+                        long previous = Long.MIN_VALUE;
+                        for (Trip trip : store.values()) {
+                            assertTrue(trip.getId() > previous);
+                            previous = trip.getId();
+                        }
+                        for (String city : cities) {
+                            for (Trip trip : byCity.get(city)) {
+                                trip.getCity().length();
+                            }
+                        }
+                    }
+                } catch (Throwable t) {
+                    readerErrors.add(t);
+                }
+            });
+        }
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < perThread; i++) {
+                long id = (long) thread * perThread + i + 1;
+                store.put(new Trip(id, "Trip " + id, (long) thread, cities[i % cities.length], null, null, 50));
+                // Move every other trip to another city, and delete every fifth one
+                if (i % 2 == 0) {
+                    store.put(new Trip(id, "Trip " + id, (long) thread, cities[(i + 1) % cities.length], null, null, 50));
+                }
+                if (i % 5 == 0) {
+                    store.remove(id);
+                }
+            }
+        });
+        writing.set(false);
+        readers.shutdown();
+        assertTrue(readers.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue("Reader failed: " + readerErrors.peek(), readerErrors.isEmpty());
+
+        int expected = THREADS * (perThread - perThread / 5);
+        assertEquals(expected, store.size());
+        assertEquals(expected, store.values().size());
+        int indexed = 0;
+        for (String city : cities) {
+            long previous = Long.MIN_VALUE;
+            for (Trip trip : byCity.get(city)) {
+                assertEquals(city, trip.getCity());
+                assertTrue(trip.getId() > previous);
+                previous = trip.getId();
+                assertTrue(store.findById(trip.getId()).get() == trip);
+            }
+            indexed += byCity.get(city).size();
+        }
+        assertEquals(expected, indexed);
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(perThread - perThread / 5, byUser.get((long) thread).size());
+        }
+    }
+
+    private interface Work {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Work work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                work.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+}
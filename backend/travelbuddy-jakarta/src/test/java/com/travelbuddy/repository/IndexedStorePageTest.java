@@ -0,0 +1,97 @@
+package com.travelbuddy.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.travelbuddy.model.Trip;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset pages of IndexedStore and its multi-indexes: walking the pages visits
+ * every entity once, in id order, and the cursor survives edge cases.
+ */
+public class IndexedStorePageTest {
+
+    private IndexedStore<Trip> store;
+    private IndexedStore.MultiIndex<Trip> byCity;
+
+    @Before
+    public void setUp() {
+        store = new IndexedStore<>(Trip::getId);
+        byCity = store.addMultiIndex(Trip::getCity);
+        // Ids 1 to 10; odd ids in Paris, even ids in Rome
+        for (long id = 1; id <= 10; id++) {
+            store.put(new Trip(id, "Trip " + id, 1L, id % 2 == 1 ? "Paris" : "Rome", null, null, 100));
+        }
+    }
+
+    @Test
+    public void pagesWalkAllEntitiesInIdOrder() {
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), walk(null, 3));
+        assertEquals(List.of(1L, 3L, 5L, 7L, 9L), walk("Paris", 2));
+    }
+
+    @Test
+    public void lastPageHasNoNext() {
+        IndexedStore.Page<Trip> page = store.page(6L, 4);
+        assertEquals(List.of(7L, 8L, 9L, 10L), ids(page));
+        assertNull(page.getNext());
+
+        IndexedStore.Page<Trip> cityPage = byCity.page("Rome", 4L, 3);
+        assertEquals(List.of(6L, 8L, 10L), ids(cityPage));
+        assertNull(cityPage.getNext());
+    }
+
+    @Test
+    public void afterPastTheEndIsAnEmptyLastPage() {
+        IndexedStore.Page<Trip> page = store.page(10L, 5);
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNext());
+
+        IndexedStore.Page<Trip> cityPage = byCity.page("Paris", 99L, 5);
+        assertTrue(cityPage.getItems().isEmpty());
+        assertNull(cityPage.getNext());
+    }
+
+    @Test
+    public void deletedAfterIdResumesWithTheNextLargerId() {
+        IndexedStore.Page<Trip> first = store.page(null, 4);
+        assertEquals(Long.valueOf(4L), first.getNext());
+        IndexedStore.Page<Trip> firstInCity = byCity.page("Paris", null, 2);
+        assertEquals(Long.valueOf(3L), firstInCity.getNext());
+
+        store.remove(4L);
+        store.remove(3L);
+
+        assertEquals(List.of(5L, 6L, 7L, 8L), ids(store.page(first.getNext(), 4)));
+        assertEquals(List.of(5L, 7L), ids(byCity.page("Paris", firstInCity.getNext(), 2)));
+    }
+
+    /**
+     * Ids of all pages of the store, or of one city, following next to the end.
+     */
+    private List<Long> walk(String city, int limit) {
+        List<Long> ids = new ArrayList<>();
+        Long after = null;
+        do {
+            IndexedStore.Page<Trip> page = city == null ? store.page(after, limit) : byCity.page(city, after, limit);
+            assertTrue(page.getItems().size() <= limit);
+            ids.addAll(ids(page));
+            after = page.getNext();
+        } while (after != null);
+        return ids;
+    }
+
+    private static List<Long> ids(IndexedStore.Page<Trip> page) {
+        List<Long> ids = new ArrayList<>();
+        for (Trip trip : page.getItems()) {
+            ids.add(trip.getId());
+        }
+        return ids;
+    }
+}
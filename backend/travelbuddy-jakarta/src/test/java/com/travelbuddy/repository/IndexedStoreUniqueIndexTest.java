@@ -0,0 +1,77 @@
+package com.travelbuddy.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.travelbuddy.model.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * A unique index over data holding duplicate keys finds the lowest id, and
+ * falls back to the next one when that entity goes away.
+ */
+public class IndexedStoreUniqueIndexTest {
+
+    private IndexedStore<User> store;
+    private IndexedStore.UniqueIndex<User> byUsername;
+
+    @Before
+    public void setUp() {
+        store = new IndexedStore<>(User::getId);
+        byUsername = store.addUniqueIndex(User::getUsername);
+    }
+
+    @Test
+    public void lowestIdWinsWhateverTheInsertOrder() {
+        store.put(user(5L, "alice"));
+        store.put(user(2L, "Alice"));
+        store.put(user(9L, "ALICE"));
+        assertEquals(Long.valueOf(2L), byUsername.get("alice").get().getId());
+    }
+
+    @Test
+    public void removingTheFoundEntityPromotesTheNextLowestId() {
+        store.put(user(5L, "alice"));
+        store.put(user(2L, "alice"));
+        store.put(user(9L, "alice"));
+
+        store.remove(2L);
+        assertEquals(Long.valueOf(5L), byUsername.get("alice").get().getId());
+        store.remove(9L);
+        assertEquals(Long.valueOf(5L), byUsername.get("alice").get().getId());
+        store.remove(5L);
+        assertFalse(byUsername.get("alice").isPresent());
+    }
+
+    @Test
+    public void renamingTheFoundEntityPromotesTheNextLowestId() {
+        store.put(user(1L, "alice"));
+        store.put(user(3L, "alice"));
+
+        store.put(user(1L, "alicia"));
+        assertEquals(Long.valueOf(3L), byUsername.get("alice").get().getId());
+        assertEquals(Long.valueOf(1L), byUsername.get("alicia").get().getId());
+
+        store.put(user(1L, "alice"));
+        assertEquals(Long.valueOf(1L), byUsername.get("alice").get().getId());
+        store.remove(1L);
+        assertEquals(Long.valueOf(3L), byUsername.get("alice").get().getId());
+    }
+
+    @Test
+    public void loadIndexesDuplicatesTheSameWay() {
+        store.put(user(1L, "bob"));
+        store.load(List.of(user(7L, "alice"), user(4L, "alice"), user(8L, "alice")));
+        assertFalse(byUsername.get("bob").isPresent());
+        assertEquals(Long.valueOf(4L), byUsername.get("alice").get().getId());
+        store.remove(4L);
+        assertEquals(Long.valueOf(7L), byUsername.get("alice").get().getId());
+    }
+
+    private static User user(Long id, String username) {
+        return new User(id, username, username + id + "@example.com", "secret", username);
+    }
+}
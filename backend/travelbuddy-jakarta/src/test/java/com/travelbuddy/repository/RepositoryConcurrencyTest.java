@@ -0,0 +1,161 @@
+package com.travelbuddy.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.travelbuddy.TemporaryDataDirectory;
+import com.travelbuddy.model.Trip;
+import com.travelbuddy.model.User;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Stress tests for the repositories: concurrent saves get unique ids, none is
+ * lost, and the snapshot and journal load back to the same data after a restart.
+ */
+public class RepositoryConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Rule
+    public final TemporaryDataDirectory dataDirectory = new TemporaryDataDirectory("travelbuddy-concurrency");
+
+    @Test
+    public void concurrentSavesGetUniqueIdsAndSurviveARestart() throws Exception {
+        TripRepository trips = new TripRepository();
+        trips.init();
+        UserRepository users = new UserRepository();
+        users.init();
+        int seededTrips = trips.findAll().size();
+        int seededUsers = users.findAll().size();
+        // Enough records to compact the trip journal while the saves go on
+        int perThread = 80;
+        Set<Long> tripIds = ConcurrentHashMap.newKeySet();
+        Set<Long> reservedIds = ConcurrentHashMap.newKeySet();
+        Set<Long> userIds = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < perThread; i++) {
+                Trip trip = trips.save(new Trip(null, "Trip " + thread + "-" + i, (long) thread, "Paris", null, null,
+                        100));
+                assertTrue(tripIds.add(trip.getId()));
+                User user = users.save(new User(null, "user" + thread + "-" + i, "user" + thread + "-" + i
+                        + "@example.com", "secret", "User " + i));
+                assertTrue(userIds.add(user.getId()));
+                if (i % 20 == 0) {
+                    long first = trips.reserveIds(3);
+                    for (long id = first; id < first + 3; id++) {
+                        assertTrue(reservedIds.add(id));
+                    }
+                }
+            }
+        });
+
+        assertEquals(THREADS * perThread, tripIds.size());
+        assertEquals(THREADS * perThread, userIds.size());
+        assertTrue(Collections.disjoint(tripIds, reservedIds));
+        assertEquals(seededTrips + THREADS * perThread, trips.findAll().size());
+        assertEquals(seededUsers + THREADS * perThread, users.findAll().size());
+        for (Long id : tripIds) {
+            assertTrue(trips.findById(id).isPresent());
+        }
+        trips.flush();
+        users.flush();
+        assertTrue((long) trips.getPersistenceMetrics().get("compactions") > 0);
+
+        TripRepository replayedTrips = new TripRepository();
+        replayedTrips.init();
+        UserRepository replayedUsers = new UserRepository();
+        replayedUsers.init();
+        assertEquals(names(trips.findAll(), Trip::getId, Trip::getName),
+                names(replayedTrips.findAll(), Trip::getId, Trip::getName));
+        assertEquals(names(users.findAll(), User::getId, User::getUsername),
+                names(replayedUsers.findAll(), User::getId, User::getUsername));
+
+        // Neither saved nor reserved ids are handed out again
+        long lastTripId = Math.max(Collections.max(tripIds), Collections.max(reservedIds));
+        assertTrue(replayedTrips.save(new Trip(null, "Next", 1L, "Rome", null, null, 50)).getId() > lastTripId);
+        assertTrue(replayedUsers.save(new User(null, "next", "next@example.com", "secret", "Next")).getId()
+                > Collections.max(userIds));
+    }
+
+    @Test
+    public void concurrentSignupsWithTheSameNameSucceedOnce() throws Exception {
+        UserRepository users = new UserRepository();
+        users.init();
+        int names = 40;
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(THREADS, thread -> {
+            for (int n = 0; n < names; n++) {
+                try {
+                    users.saveIfUnique(new User(null, "signup" + n, "signup" + n + "-" + thread + "@example.com",
+                            "secret", "Signup " + n));
+                    created.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(names, created.get());
+        assertEquals(names * (THREADS - 1), rejected.get());
+        users.flush();
+
+        UserRepository replayed = new UserRepository();
+        replayed.init();
+        for (int n = 0; n < names; n++) {
+            assertEquals(users.findByUsername("signup" + n).get().getEmail(),
+                    replayed.findByUsername("signup" + n).get().getEmail());
+        }
+        assertEquals(users.findAll().size(), replayed.findAll().size());
+    }
+
+    private static <T> Map<Long, String> names(Collection<T> entities, Function<T, Long> id, Function<T, String> name) {
+        Map<Long, String> names = new TreeMap<>();
+        for (T entity : entities) {
+            names.put(id.apply(entity), name.apply(entity));
+        }
+        return names;
+    }
+
+    private interface Work {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Work work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                work.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,187 @@
+package com.travelbuddy.service;
+
+import static org.junit.Assert.assertEquals;
+
+import com.travelbuddy.TemporaryDataDirectory;
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryDay;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.model.ScheduledActivity;
+import com.travelbuddy.repository.ActivityRepository;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The candidate index and greedy planner of buildItinerary pick the same
+ * activities as the original picker, which filtered the sorted activities of
+ * the city with a stream for every time slot of every day.
+ */
+public class GreedyPlannerEquivalenceTest {
+
+    private static final String CITY = "Equivalence";
+    private static final String[] TIME_SLOTS = { "morning", "afternoon", "evening" };
+    private static final String[] TYPES = { "museum", "Landmark", "nature", "food" };
+
+    @ClassRule
+    public static final TemporaryDataDirectory DATA_DIRECTORY = new TemporaryDataDirectory("travelbuddy-equivalence");
+    private static ActivityRepository activityRepository;
+    private static ItineraryService itineraryService;
+
+    @BeforeClass
+    public static void setUp() {
+        activityRepository = new ActivityRepository();
+        activityRepository.init();
+        itineraryService = new ItineraryService(activityRepository);
+
+        Random random = new Random(42);
+        // Null, empty, mixed-case and unknown time slots; few distinct ratings and costs, so ties are common
+        String[] slots = { "morning", "Afternoon", "evening", null, "", "night" };
+        for (int i = 0; i < 400; i++) {
+            double cost = random.nextInt(8) * 10.0;
+            double rating = random.nextInt(5) * 0.5 + 3;
+            activityRepository.save(new Activity(null, "Activity " + i, CITY, TYPES[random.nextInt(TYPES.length)], 2,
+                    cost, rating, "", slots[random.nextInt(slots.length)], null));
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        activityRepository.flush();
+    }
+
+    @Test
+    public void preferencesPickTheSameActivities() {
+        for (String preference : Arrays.asList("relaxed", "balanced", "intensive", "INTENSIVE", "unknown", null)) {
+            for (int duration = 1; duration <= 14; duration++) {
+                assertSamePlan(new ItineraryRequest(CITY, 100_000, duration, null, preference));
+            }
+        }
+    }
+
+    @Test
+    public void typeFiltersPickTheSameActivities() {
+        List<List<String>> filters = Arrays.asList(List.of("museum"), List.of("LANDMARK", "nature"),
+                List.of("food", "unknown"), List.of("unknown"), List.of());
+        for (List<String> types : filters) {
+            for (String preference : Arrays.asList("relaxed", "intensive")) {
+                assertSamePlan(new ItineraryRequest(CITY, 2_000, 14, types, preference));
+            }
+        }
+    }
+
+    @Test
+    public void tightBudgetsPickTheSameActivities() {
+        for (double budget : new double[] { 1, 9.99, 10, 25, 60, 150, 333, 1_000 }) {
+            for (int duration : new int[] { 1, 3, 14 }) {
+                assertSamePlan(new ItineraryRequest(CITY, budget, duration, null, "intensive"));
+                assertSamePlan(new ItineraryRequest(CITY, budget, duration, List.of("Museum", "food"), "balanced"));
+            }
+        }
+    }
+
+    @Test
+    public void randomRequestsPickTheSameActivities() {
+        Random random = new Random(7);
+        String[] preferences = { "relaxed", "balanced", "intensive", null };
+        for (int i = 0; i < 500; i++) {
+            List<String> types = random.nextBoolean() ? null
+                    : List.of(TYPES[random.nextInt(TYPES.length)].toUpperCase(), TYPES[random.nextInt(TYPES.length)]);
+            assertSamePlan(new ItineraryRequest(random.nextBoolean() ? CITY : CITY.toLowerCase(),
+                    1 + random.nextInt(3_000), 1 + random.nextInt(14), types,
+                    preferences[random.nextInt(preferences.length)]));
+        }
+    }
+
+    private static void assertSamePlan(ItineraryRequest request) {
+        assertEquals(request.getBudget() + " " + request.getDuration() + " " + request.getActivityTypes() + " "
+                + request.getPreference(), originalPlan(request), plan(itineraryService.buildItinerary(request)));
+    }
+
+    private static String plan(Itinerary itinerary) {
+        if (!itinerary.isSuccess()) {
+            return itinerary.getMessage();
+        }
+        StringBuilder plan = new StringBuilder();
+        for (ItineraryDay day : itinerary.getDays()) {
+            plan.append(day.getDayNumber()).append(':');
+            for (ScheduledActivity activity : day.getActivities()) {
+                plan.append(' ').append(activity.getActivityId()).append('@').append(activity.getStartTime());
+            }
+            plan.append('\n');
+        }
+        return plan.append(itinerary.getRemainingBudget()).toString();
+    }
+
+    /**
+     * The picker buildItinerary used before the candidate index, in the format of {@link #plan}.
+     */
+    private static String originalPlan(ItineraryRequest request) {
+        List<Activity> availableActivities = new ArrayList<>(activityRepository.findByCity(request.getCity()));
+        if (request.getActivityTypes() != null && !request.getActivityTypes().isEmpty()) {
+            List<String> types = request.getActivityTypes().stream()
+                    .map(String::toLowerCase)
+                    .collect(Collectors.toList());
+            availableActivities = availableActivities.stream()
+                    .filter(a -> types.contains(a.getType().toLowerCase()))
+                    .collect(Collectors.toList());
+        }
+        if (availableActivities.isEmpty()) {
+            return "No activities match the selected types";
+        }
+        availableActivities.sort((a, b) -> {
+            int ratingCompare = Double.compare(b.getRating(), a.getRating());
+            if (ratingCompare == 0) {
+                return Double.compare(a.getCost(), b.getCost());
+            }
+            return ratingCompare;
+        });
+
+        String preference = request.getPreference() != null ? request.getPreference().toLowerCase() : "balanced";
+        int activitiesPerDay = Map.of("relaxed", 2, "balanced", 3, "intensive", 4).getOrDefault(preference, 3);
+        Map<String, String> startTimes = Map.of("morning", "09:00", "afternoon", "14:00", "evening", "19:00");
+
+        double remainingBudget = request.getBudget();
+        Set<Long> usedActivityIds = new HashSet<>();
+        StringBuilder plan = new StringBuilder();
+        for (int day = 1; day <= request.getDuration(); day++) {
+            StringBuilder dayPlan = new StringBuilder();
+            int activitiesAdded = 0;
+            for (String timeSlot : TIME_SLOTS) {
+                if (activitiesAdded >= activitiesPerDay)
+                    break;
+                double currentBudget = remainingBudget;
+                Optional<Activity> bestActivity = availableActivities.stream()
+                        .filter(a -> !usedActivityIds.contains(a.getId()))
+                        .filter(a -> a.getCost() <= currentBudget)
+                        .filter(a -> a.getTimeSlot() == null ||
+                                a.getTimeSlot().equalsIgnoreCase(timeSlot) ||
+                                a.getTimeSlot().isEmpty())
+                        .findFirst();
+                if (bestActivity.isPresent()) {
+                    Activity activity = bestActivity.get();
+                    dayPlan.append(' ').append(activity.getId()).append('@').append(startTimes.get(timeSlot));
+                    usedActivityIds.add(activity.getId());
+                    remainingBudget -= activity.getCost();
+                    activitiesAdded++;
+                }
+            }
+            if (activitiesAdded > 0) {
+                plan.append(day).append(':').append(dayPlan).append('\n');
+            }
+        }
+        return plan.append(remainingBudget).toString();
+    }
+}
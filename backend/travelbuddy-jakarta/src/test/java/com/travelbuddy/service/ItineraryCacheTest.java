@@ -0,0 +1,109 @@
+package com.travelbuddy.service;
+
+import static org.junit.Assert.assertEquals;
+
+import com.travelbuddy.TemporaryDataDirectory;
+import com.travelbuddy.model.Activity;
+import com.travelbuddy.model.Itinerary;
+import com.travelbuddy.model.ItineraryRequest;
+import com.travelbuddy.repository.ActivityRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Cached itineraries of a city are dropped when one of its activities changes,
+ * and only those.
+ */
+public class ItineraryCacheTest {
+
+    @Rule
+    public final TemporaryDataDirectory dataDirectory = new TemporaryDataDirectory("travelbuddy-cache");
+    private ActivityRepository activityRepository;
+    private ItineraryCache cache;
+    private final AtomicInteger computed = new AtomicInteger();
+    private final Function<ItineraryRequest, Itinerary> compute = request -> {
+        computed.incrementAndGet();
+        return new Itinerary(request.getCity(), request.getDuration());
+    };
+
+    @Before
+    public void setUp() {
+        activityRepository = new ActivityRepository();
+        activityRepository.init();
+        cache = new ItineraryCache(activityRepository);
+    }
+
+    @After
+    public void tearDown() {
+        activityRepository.flush();
+    }
+
+    @Test
+    public void repeatedRequestIsComputedOnce() {
+        cache.get(request("Paris"), compute);
+        cache.get(new ItineraryRequest("PARIS", 500, 3, null, "Balanced"), compute);
+        assertEquals(1, computed.get());
+    }
+
+    @Test
+    public void savingAnActivityInvalidatesItsCityOnly() {
+        cache.get(request("Paris"), compute);
+        cache.get(request("Rome"), compute);
+
+        activityRepository.save(new Activity(null, "Night walk", "paris", "culture", 2, 0, 4.5, "", "evening", null));
+
+        cache.get(request("Paris"), compute);
+        assertEquals(3, computed.get());
+        cache.get(request("Rome"), compute);
+        assertEquals(3, computed.get());
+    }
+
+    @Test
+    public void movingAnActivityInvalidatesBothCities() {
+        Activity activity = activityRepository.save(
+                new Activity(null, "Boat tour", "Paris", "nature", 1, 20, 4.0, "", "afternoon", null));
+        cache.get(request("Paris"), compute);
+        cache.get(request("Rome"), compute);
+
+        activityRepository.save(new Activity(activity.getId(), "Boat tour", "Rome", "nature", 1, 20, 4.0, "",
+                "afternoon", null));
+
+        cache.get(request("Paris"), compute);
+        cache.get(request("Rome"), compute);
+        assertEquals(4, computed.get());
+    }
+
+    @Test
+    public void deletingAnActivityInvalidatesItsCity() {
+        Activity activity = activityRepository.save(
+                new Activity(null, "Boat tour", "Paris", "nature", 1, 20, 4.0, "", "afternoon", null));
+        cache.get(request("Paris"), compute);
+
+        activityRepository.deleteById(activity.getId());
+
+        cache.get(request("Paris"), compute);
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    public void fallbackItineraryIsNotCached() {
+        Function<ItineraryRequest, Itinerary> fallback = request -> {
+            Itinerary itinerary = compute.apply(request);
+            itinerary.setFallback(true);
+            return itinerary;
+        };
+        cache.get(request("Paris"), fallback);
+        cache.get(request("Paris"), compute);
+        cache.get(request("Paris"), compute);
+        assertEquals(2, computed.get());
+    }
+
+    private static ItineraryRequest request(String city) {
+        return new ItineraryRequest(city, 500, 3, null, "balanced");
+    }
+}
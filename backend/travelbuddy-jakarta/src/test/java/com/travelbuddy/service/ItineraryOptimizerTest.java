@@ -0,0 +1,175 @@
+package com.travelbuddy.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.travelbuddy.model.Activity;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The optimizer's plans are feasible and as highly rated as the best one found
+ * by trying every subset of the activities on small instances.
+ */
+public class ItineraryOptimizerTest {
+
+    private static final String[] TIME_SLOTS = { "morning", "afternoon", "evening" };
+    // Null and empty fit any slot, "night" none
+    private static final String[] ACTIVITY_SLOTS = { "morning", "Afternoon", "evening", null, "", "night" };
+    private static final String[] TYPES = { "museum", "nature", "food" };
+
+    private final ItineraryOptimizer optimizer = new ItineraryOptimizer();
+
+    @Test
+    public void matchesBruteForceOnRandomSmallInstances() {
+        Random random = new Random(11);
+        for (int instance = 0; instance < 3000; instance++) {
+            int size = 1 + random.nextInt(8);
+            // Budgets of 1000 cells of a power of two, and costs in whole cells, so rounding loses nothing
+            double unit = new double[] { 0.25, 0.5, 1, 2 }[random.nextInt(4)];
+            double budget = 1000 * unit;
+            List<Activity> activities = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                double cost = random.nextInt(5) == 0 ? 0 : random.nextInt(600) * unit;
+                double rating = random.nextInt(11) * 0.5;
+                activities.add(new Activity((long) i + 1, "Activity " + i, "City", TYPES[random.nextInt(TYPES.length)],
+                        1, cost, rating, "", ACTIVITY_SLOTS[random.nextInt(ACTIVITY_SLOTS.length)], null));
+            }
+            int days = 1 + random.nextInt(3);
+            int perDay = 1 + random.nextInt(4);
+            List<String> types = random.nextInt(3) == 0 ? List.of(TYPES[random.nextInt(TYPES.length)]) : null;
+
+            ActivityCandidateIndex.CityCandidates candidates =
+                    new ActivityCandidateIndex.CityCandidates(activities, TIME_SLOTS);
+            boolean[] typeMask = candidates.typeMask(types);
+            int[][] plan = optimizer.plan(candidates, typeMask, days, perDay, TIME_SLOTS.length, budget,
+                    Deadline.after(60_000));
+            String description = "instance " + instance + ": " + days + " days, " + perDay + " per day, budget "
+                    + budget + ", types " + types;
+            assertNotNull(description, plan);
+
+            double rating = checkFeasible(description, candidates, typeMask, plan, days, perDay, budget);
+            assertEquals(description, bruteForce(candidates, typeMask, days, perDay, budget), rating, 1e-9);
+        }
+    }
+
+    @Test
+    public void refusesTooManyItems() {
+        List<Activity> activities = new ArrayList<>();
+        // Ever cheaper as the rating drops, so pruning keeps them all
+        for (int i = 0; i < 600; i++) {
+            activities.add(new Activity((long) i + 1, "Activity " + i, "City", "food", 1, 600 - i, 1000 - i, "",
+                    null, null));
+        }
+        ActivityCandidateIndex.CityCandidates candidates =
+                new ActivityCandidateIndex.CityCandidates(activities, TIME_SLOTS);
+        try {
+            optimizer.plan(candidates, candidates.typeMask(null), 14, 4, TIME_SLOTS.length, 600,
+                    Deadline.after(60_000));
+            fail("the optimizer should refuse 600 items");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().startsWith("Too many candidate activities"));
+        }
+    }
+
+    /**
+     * Checks slots, types, counts and budget of plan.
+     *
+     * @return its total rating
+     */
+    private static double checkFeasible(String description, ActivityCandidateIndex.CityCandidates candidates,
+            boolean[] typeMask, int[][] plan, int days, int perDay, double budget) {
+        assertEquals(description, days, plan.length);
+        Set<Integer> used = new HashSet<>();
+        double cost = 0;
+        double rating = 0;
+        for (int[] day : plan) {
+            int count = 0;
+            for (int slot = 0; slot < day.length; slot++) {
+                int position = day[slot];
+                if (position < 0) {
+                    continue;
+                }
+                assertTrue(description, used.add(position));
+                assertTrue(description, fits(candidates, position, slot));
+                assertTrue(description, candidates.acceptsType(typeMask, position));
+                cost += candidates.getCost(position);
+                rating += candidates.getRating(position);
+                count++;
+            }
+            assertTrue(description, count <= perDay);
+        }
+        assertTrue(description, cost <= budget);
+        return rating;
+    }
+
+    /**
+     * Best total rating over all subsets of the activities that fit the budget
+     * and can be placed in the days' time slots.
+     */
+    private static double bruteForce(ActivityCandidateIndex.CityCandidates candidates, boolean[] typeMask,
+            int days, int perDay, double budget) {
+        int size = candidates.size();
+        double best = 0;
+        for (int subset = 1; subset < 1 << size; subset++) {
+            List<Integer> chosen = new ArrayList<>();
+            double cost = 0;
+            double rating = 0;
+            boolean accepted = true;
+            for (int position = 0; position < size; position++) {
+                if ((subset & (1 << position)) != 0) {
+                    accepted &= candidates.acceptsType(typeMask, position);
+                    chosen.add(position);
+                    cost += candidates.getCost(position);
+                    rating += candidates.getRating(position);
+                }
+            }
+            if (accepted && cost <= budget && rating > best
+                    && place(candidates, chosen, 0, new boolean[days][TIME_SLOTS.length], new int[days], perDay)) {
+                best = rating;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Whether chosen[next..] can be put in free slots without exceeding perDay on any day.
+     */
+    private static boolean place(ActivityCandidateIndex.CityCandidates candidates, List<Integer> chosen, int next,
+            boolean[][] taken, int[] counts, int perDay) {
+        if (next == chosen.size()) {
+            return true;
+        }
+        int position = chosen.get(next);
+        for (int day = 0; day < taken.length; day++) {
+            if (counts[day] == perDay) {
+                continue;
+            }
+            for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+                if (!taken[day][slot] && fits(candidates, position, slot)) {
+                    taken[day][slot] = true;
+                    counts[day]++;
+                    boolean placed = place(candidates, chosen, next + 1, taken, counts, perDay);
+                    taken[day][slot] = false;
+                    counts[day]--;
+                    if (placed) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean fits(ActivityCandidateIndex.CityCandidates candidates, int position, int slot) {
+        int activitySlot = candidates.getSlot(position);
+        return activitySlot == slot || activitySlot == ActivityCandidateIndex.CityCandidates.ANY_SLOT;
+    }
+}
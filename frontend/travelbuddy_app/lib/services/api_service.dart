@@ -10,16 +10,33 @@ import '../utils/constants.dart';
 class ApiService {
   final String baseUrl = AppConstants.restApiUrl;
 
+  static final RegExp _nextLink = RegExp(r'<([^>]*)>\s*;\s*rel="?next"?');
+
+  /// List endpoints return one page at a time; follows the Link rel="next"
+  /// header until the last page and returns the items of all pages.
+  Future<List<dynamic>> _getAllPages(Uri uri, String error) async {
+    final List<dynamic> items = [];
+    Uri? next = uri;
+    while (next != null) {
+      final response = await http.get(next);
+      if (response.statusCode != 200) {
+        throw Exception(error);
+      }
+      items.addAll(json.decode(response.body) as List<dynamic>);
+      final link = response.headers['link'];
+      final match = link == null ? null : _nextLink.firstMatch(link);
+      next = match == null ? null : next.resolve(match.group(1)!);
+    }
+    return items;
+  }
+
   // ==================== Cities ====================
 
   Future<List<City>> getCities() async {
     try {
-      final response = await http.get(Uri.parse('$baseUrl/cities'));
-      if (response.statusCode == 200) {
-        final List<dynamic> data = json.decode(response.body);
-        return data.map((json) => City.fromJson(json)).toList();
-      }
-      throw Exception('Failed to load cities');
+      final data =
+          await _getAllPages(Uri.parse('$baseUrl/cities'), 'Failed to load cities');
+      return data.map((json) => City.fromJson(json)).toList();
     } catch (e) {
       print('Error fetching cities: $e');
       rethrow;
@@ -43,12 +60,9 @@ class ApiService {
 
   Future<List<Activity>> getActivities() async {
     try {
-      final response = await http.get(Uri.parse('$baseUrl/activities'));
-      if (response.statusCode == 200) {
-        final List<dynamic> data = json.decode(response.body);
-        return data.map((json) => Activity.fromJson(json)).toList();
-      }
-      throw Exception('Failed to load activities');
+      final data = await _getAllPages(
+          Uri.parse('$baseUrl/activities'), 'Failed to load activities');
+      return data.map((json) => Activity.fromJson(json)).toList();
     } catch (e) {
       print('Error fetching activities: $e');
       rethrow;
@@ -57,13 +71,9 @@ class ApiService {
 
   Future<List<Activity>> getActivitiesByCity(String city) async {
     try {
-      final response =
-          await http.get(Uri.parse('$baseUrl/activities/city/$city'));
-      if (response.statusCode == 200) {
-        final List<dynamic> data = json.decode(response.body);
-        return data.map((json) => Activity.fromJson(json)).toList();
-      }
-      throw Exception('Failed to load activities for city');
+      final data = await _getAllPages(Uri.parse('$baseUrl/activities/city/$city'),
+          'Failed to load activities for city');
+      return data.map((json) => Activity.fromJson(json)).toList();
     } catch (e) {
       print('Error fetching activities by city: $e');
       rethrow;
@@ -72,13 +82,9 @@ class ApiService {
 
   Future<List<Activity>> getActivitiesByType(String type) async {
     try {
-      final response =
-          await http.get(Uri.parse('$baseUrl/activities/type/$type'));
-      if (response.statusCode == 200) {
-        final List<dynamic> data = json.decode(response.body);
-        return data.map((json) => Activity.fromJson(json)).toList();
-      }
-      throw Exception('Failed to load activities by type');
+      final data = await _getAllPages(Uri.parse('$baseUrl/activities/type/$type'),
+          'Failed to load activities by type');
+      return data.map((json) => Activity.fromJson(json)).toList();
     } catch (e) {
       print('Error fetching activities by type: $e');
       rethrow;
@@ -184,12 +190,9 @@ class ApiService {
 
   Future<List<Trip>> getTrips() async {
     try {
-      final response = await http.get(Uri.parse('$baseUrl/trips'));
-      if (response.statusCode == 200) {
-        final List<dynamic> data = json.decode(response.body);
-        return data.map((json) => Trip.fromJson(json)).toList();
-      }
-      throw Exception('Failed to load trips');
+      final data =
+          await _getAllPages(Uri.parse('$baseUrl/trips'), 'Failed to load trips');
+      return data.map((json) => Trip.fromJson(json)).toList();
     } catch (e) {
       print('Error fetching trips: $e');
       rethrow;
@@ -198,12 +201,9 @@ class ApiService {
 
   Future<List<Trip>> getTripsByUserId(int userId) async {
     try {
-      final response = await http.get(Uri.parse('$baseUrl/trips/user/$userId'));
-      if (response.statusCode == 200) {
-        final List<dynamic> data = json.decode(response.body);
-        return data.map((json) => Trip.fromJson(json)).toList();
-      }
-      throw Exception('Failed to load user trips');
+      final data = await _getAllPages(
+          Uri.parse('$baseUrl/trips/user/$userId'), 'Failed to load user trips');
+      return data.map((json) => Trip.fromJson(json)).toList();
     } catch (e) {
       print('Error fetching user trips: $e');
       rethrow;